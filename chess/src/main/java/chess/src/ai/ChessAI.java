@@ -1,112 +1,461 @@
 package chess.src.ai;
 
 import chess.src.board.ChessBoard;
-import chess.src.board.InvalidLocationException;
-import chess.src.piece.Bishop;
-import chess.src.piece.King;
-import chess.src.piece.Knight;
-import chess.src.piece.Pawn;
-import chess.src.piece.Piece;
-import chess.src.piece.Queen;
-import chess.src.piece.Rook;
-import chess.src.board.Square;
-
-import java.util.ArrayList;
-import java.util.List;
-
+import chess.src.board.Move;
+import chess.src.board.MoveGenerator;
+import chess.src.board.Position;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Negamax principal variation search with iterative deepening, a transposition table and a
+// quiescence search at the leaves, see Searcher. Scores are integers in centipawns (a pawn is 100)
+// from the point of view of the side to move in the position they belong to, only the evaluation
+// itself is computed from the AI's point of view.
 public class ChessAI {
     public final int aiColor; // AI's color (ChessBoard.WHITE or ChessBoard.BLACK)
     public final int maxDepth;
+    public static final int DEFAULT_HASH_MB = 16;
+    // depth limit of a search that is limited by time
+    public static final int MAX_DEPTH = 64;
+    // half width of the first aspiration window, doubled after every failed search
+    private static final int ASPIRATION_WINDOW = 30;
+    // iterations this shallow are always searched on the calling thread alone
+    private static final int MIN_PARALLEL_DEPTH = 3;
+    // Threads of the parallel root search, shared by all games. Each game uses at most as many
+    // of them as its parallelism allows.
+    private static final ForkJoinPool SEARCH_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    // Threads of the Lazy SMP helpers. A helper runs for a whole search, so each gets a thread of its own.
+    private static final ExecutorService HELPER_THREADS = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "chess-ai-helper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The selective search can be switched off technique by technique, to measure what each one
+    // costs or saves. All are on by default.
+    boolean nullMovePruning = true;
+    boolean lateMoveReductions = true;
+    boolean futilityPruning = true;
+    private final int[] rootMoves;
+    private int rootMoveCount;
+    private final TranspositionTable table;
+    private final TimeManager timeManager = new TimeManager();
+    // searchers[0] searches on the calling thread, all of them in a parallel root search
+    private Searcher[] searchers;
+    // Lazy SMP helper searchers, see setHelperThreads
+    private Searcher[] helpers = new Searcher[0];
+    // set to stop the search, by the searcher that finds the time up
+    private volatile boolean stopped;
+    // best score and line of the current iteration of a parallel root search, guarded by the AI's lock
+    private int rootBest;
+    private int[] rootLine;
+    private int[] principalVariation = new int[0];
+    private int completedDepth;
+    private int score;
+    // longest a ponder search runs when the opponent does not move, e.g. after leaving the game
+    private static final long PONDER_MAX_MILLIS = 5 * 60 * 1000;
+    // background search of the position after the expected reply of the opponent, see ponder
+    private Future<Integer> ponderTask;
+    private Position ponderPosition;
+    private boolean ponderHit;
+    // consulted before every search, see setOpeningBook
+    private OpeningBook book;
+
+    public ChessAI(int aiColor, int maxDepth, TranspositionTable table) {
+        this.aiColor = aiColor;
+        this.maxDepth = Math.min(maxDepth, MAX_DEPTH);
+        this.table = table;
+        this.rootMoves = new int[MoveGenerator.MAX_MOVES];
+        this.searchers = new Searcher[] { new Searcher(this, table, timeManager) };
+    }
 
     public ChessAI(int aiColor, int maxDepth) {
-        this.aiColor = aiColor;
-        this.maxDepth = maxDepth;
+        this(aiColor, maxDepth, new TranspositionTable(DEFAULT_HASH_MB));
     }
 
-    // Entry point: returns the best move for the AI
-    public MoveInformation getBestMove(ChessBoard board) {
-        double bestValue = Double.NEGATIVE_INFINITY;
-        MoveInformation bestMove = null;
+    // Number of threads searching the root moves of this AI at the same time. With 1, the default,
+    // the search runs on the calling thread alone and is deterministic: the same position, depth and
+    // table contents always give the same move. With more, the root moves are shared out among threads
+    // of a ForkJoinPool; the moves they find are as good, but may differ between runs.
+    public void setParallelism(int threads) {
+        Searcher[] resized = Arrays.copyOf(searchers, Math.max(1, threads));
+        for (int i = searchers.length; i < resized.length; i++)
+            resized[i] = new Searcher(this, table, timeManager);
+        searchers = resized;
+    }
 
-        List<MoveInformation> legalMoves = generateAllLegalMoves(board, aiColor);
+    // Lazy SMP: besides the main search, the given number of helper threads search the same root
+    // independently and only share the transposition table. The helpers skip depths (Searcher.skipsDepth),
+    // so that they search other depths than the main search and each other on every iteration. What they
+    // find about the positions below the root saves the main search work, so it gets deeper in the same
+    // time. The helpers are stopped as soon as the main search is done; the move is always the one of
+    // the main search. 0, the default, searches without helpers.
+    public void setHelperThreads(int count) {
+        Searcher[] resized = Arrays.copyOf(helpers, Math.max(0, count));
+        for (int i = helpers.length; i < resized.length; i++)
+            resized[i] = new Searcher(this, table, timeManager);
+        helpers = resized;
+    }
 
-        for (MoveInformation move : legalMoves) {
-            ChessBoard boardCopy = new ChessBoard(board); // Deep copy
-            Piece piece = boardCopy.boardMatrix[move.location().getColumn()][move.location().getRow()].getPiece();
-            // simulate the move
-            try {
-                piece.move(move.target());
-            } catch (InvalidLocationException e) {
-                System.out.println(e.getMessage());
+    // Opening book to play from while the game is in it: a book move is played at once, without searching.
+    // The book is only read, so one can be shared by all AIs. null, the default, always searches.
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    // Entry point: returns the best move for the AI, encoded as described in Move (Move.NONE if there is none)
+    // Searches to maxDepth without a time limit.
+    public int getBestMove(ChessBoard board) {
+        int bookMove = probeBook(board.getPosition());
+        if (bookMove != Move.NONE)
+            return bookMove;
+        boolean hit = finishPondering(board.getPosition());
+        timeManager.startUnlimited();
+        if (hit)
+            return awaitPonder();
+        stopped = false;
+        return search(board.getPosition());
+    }
+
+    // Searches as deep as the time allotted from the AI's remaining clock allows, at most maxDepth
+    // and never longer than maxMoveMillis. See TimeManager.
+    public int getBestMove(ChessBoard board, long remainingMillis, long incrementMillis, long maxMoveMillis) {
+        int bookMove = probeBook(board.getPosition());
+        if (bookMove != Move.NONE)
+            return bookMove;
+        boolean hit = finishPondering(board.getPosition());
+        timeManager.start(remainingMillis, incrementMillis, maxMoveMillis, board.getPosition());
+        if (hit)
+            return awaitPonder();
+        stopped = false;
+        return search(board.getPosition());
+    }
+
+    // Pondering: the AI thinks on the opponent's time. After the AI's move has been played on the board,
+    // the principal variation of its search says which reply it expects; the position after that reply is
+    // searched in the background until the opponent moves. If the opponent plays the expected reply
+    // (a ponder hit), getBestMove does not start over: the running search goes on, from then on with the
+    // time limit of the move, and has usually gone deep already. Any other reply stops it within a few
+    // hundred nodes, and the new search still finds its results in the transposition table.
+    public void ponder(ChessBoard board) {
+        stopPondering();
+        Position position = new Position(board.getPosition());
+        if (principalVariation.length < 2 || position.lastMove() != principalVariation[0]
+                || !position.isMoveLegal(principalVariation[1]))
+            return;
+        position.makeMove(principalVariation[1]);
+        ponderPosition = position;
+        timeManager.startPondering(PONDER_MAX_MILLIS);
+        // reset here, not when the task starts: a stop coming before that must not get lost
+        stopped = false;
+        ponderTask = HELPER_THREADS.submit(() -> search(position));
+    }
+
+    // the reply the running ponder search expects from the opponent, Move.NONE if the AI is not pondering
+    public int getPonderMove() {
+        return ponderTask == null ? Move.NONE : ponderPosition.lastMove();
+    }
+
+    // whether the last move came from a ponder search the opponent's reply had been expected by
+    public boolean wasPonderHit() {
+        return ponderHit;
+    }
+
+    public void stopPondering() {
+        if (ponderTask == null)
+            return;
+        stop();
+        awaitPonder();
+    }
+
+    // the book move for the position, Move.NONE if there is no book or the position is not in it
+    private int probeBook(Position position) {
+        int move = book == null ? Move.NONE : book.probe(position);
+        if (move != Move.NONE) {
+            stopPondering();
+            ponderHit = false;
+            completedDepth = 0;
+            principalVariation = new int[] { move };
+        }
+        return move;
+    }
+
+    // true if the position is the one being pondered on, the ponder search then keeps running;
+    // otherwise any ponder search is stopped
+    private boolean finishPondering(Position position) {
+        ponderHit = ponderTask != null && position.hash() == ponderPosition.hash()
+                && position.lastMove() == ponderPosition.lastMove();
+        if (!ponderHit)
+            stopPondering();
+        return ponderHit;
+    }
+
+    private int awaitPonder() {
+        Future<Integer> task = ponderTask;
+        ponderTask = null;
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+            return Move.NONE;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ponder search failed", e.getCause());
+        }
+    }
+
+    // Iterative deepening: the position is searched to depth 1, 2, 3 ... until maxDepth or the time is up.
+    // The best move of every iteration is searched first in the next one, and the transposition table
+    // orders the moves below the root, so the shallow iterations cost little and pay for themselves.
+    // An iteration stopped by the time limit is thrown away, the move of the last completed one is played.
+    // From depth 4 on an iteration starts with a narrow window around the score of the previous one
+    // (an aspiration window): most moves are refuted faster, and when the score falls outside the
+    // window is widened on that side and the iteration searched again.
+    // The caller resets the stop flag before the search starts.
+    private int search(Position position) {
+        table.newSearch();
+        for (Searcher searcher : searchers)
+            searcher.startSearch(position);
+        for (Searcher helper : helpers)
+            helper.startSearch(position);
+        completedDepth = 0;
+        principalVariation = new int[0];
+        rootMoveCount = MoveGenerator.generateLegal(position, aiColor, rootMoves);
+        if (rootMoveCount == 0)
+            return Move.NONE;
+        orderRootMoves();
+        Future<?>[] helperTasks = startHelpers();
+        try {
+            return iterativeDeepening();
+        } finally {
+            stop();
+            awaitHelpers(helperTasks);
+        }
+    }
+
+    private int iterativeDeepening() {
+        int bestMove = rootMoves[0];
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (depth > 1 && !timeManager.canStartIteration())
+                break;
+            int delta = ASPIRATION_WINDOW;
+            int alpha = -Searcher.INFINITY, beta = Searcher.INFINITY;
+            if (depth >= 4) {
+                alpha = Math.max(score - delta, -Searcher.INFINITY);
+                beta = Math.min(score + delta, Searcher.INFINITY);
             }
-            if (piece instanceof Pawn && ((Pawn) piece).isPromoted) {
-                boardCopy.deletePromotedPawn(piece.getLocation());
+            int value;
+            while (true) {
+                value = searchers.length > 1 && depth >= MIN_PARALLEL_DEPTH
+                        ? searchRootParallel(depth, alpha, beta) : searchRoot(depth, alpha, beta);
+                if (stopped)
+                    break;
+                if (value <= alpha)
+                    alpha = Math.max(value - delta, -Searcher.INFINITY);
+                else if (value >= beta)
+                    beta = Math.min(value + delta, Searcher.INFINITY);
+                else
+                    break;
+                delta *= 2;
             }
-            double value = minimax(boardCopy, maxDepth - 1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
-
-            if (value > bestValue) {
-                bestValue = value;
-                bestMove = move;
+            if (stopped)
+                break;
+            score = value;
+            principalVariation = rootLine;
+            bestMove = rootLine[0];
+            completedDepth = depth;
+            // the best move goes first in the next iteration
+            for (int i = 0; i < rootMoveCount; i++) {
+                if (rootMoves[i] == bestMove) {
+                    System.arraycopy(rootMoves, 0, rootMoves, 1, i);
+                    rootMoves[0] = bestMove;
+                    break;
+                }
             }
         }
         return bestMove;
     }
 
-    // Minimax with alpha-beta pruning
-    private double minimax(ChessBoard board, int depth, double alpha, double beta, boolean maximizingPlayer) {
-        int currentColor = maximizingPlayer ? aiColor
-                : (aiColor == ChessBoard.WHITE ? ChessBoard.BLACK : ChessBoard.WHITE);
+    private Future<?>[] startHelpers() {
+        Future<?>[] tasks = new Future<?>[helpers.length];
+        for (int i = 0; i < helpers.length; i++) {
+            Searcher helper = helpers[i];
+            int index = i;
+            int[] moves = Arrays.copyOf(rootMoves, rootMoveCount); // the main search reorders its own
+            tasks[i] = HELPER_THREADS.submit(() -> helper.searchAsHelper(moves, index, maxDepth));
+        }
+        return tasks;
+    }
 
-        if (depth == 0 || !board.hasAnyLegalMove(currentColor) || board.isDeadPosition()) {
-            return evaluateBoard(board);
+    // the helpers see the stop flag within a few hundred nodes
+    private static void awaitHelpers(Future<?>[] tasks) {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Helper search failed", e.getCause());
+            }
         }
+    }
 
-        List<MoveInformation> legalMoves = generateAllLegalMoves(board, currentColor);
-
-        if (maximizingPlayer) {
-            double maxEval = Double.NEGATIVE_INFINITY;
-            for (MoveInformation move : legalMoves) {
-                ChessBoard boardCopy = new ChessBoard(board); // Deep copy
-                Piece piece = boardCopy.boardMatrix[move.location().getColumn()][move.location().getRow()].getPiece();
-                // simulate the move
-                try {
-                    piece.move(move.target());
-                } catch (InvalidLocationException e) {
-                    System.out.println(e.getMessage());
-                }
-                if (piece instanceof Pawn && ((Pawn) piece).isPromoted) {
-                    boardCopy.deletePromotedPawn(piece.getLocation());
+    // The root node: like any other node, but its moves are known in advance and kept in order
+    // between iterations, and it is never cut off by the table or a draw.
+    private int searchRoot(int depth, int alpha, int beta) {
+        Searcher searcher = searchers[0];
+        int best = -Searcher.INFINITY;
+        for (int i = 0; i < rootMoveCount; i++) {
+            int move = rootMoves[i];
+            int value = searcher.searchRootMove(move, depth, alpha, beta, i == 0);
+            if (stopped)
+                return 0;
+
+            if (value > best) {
+                best = value;
+                if (value > alpha) {
+                    alpha = value;
+                    rootLine = searcher.lineAfter(move);
+                    if (alpha >= beta)
+                        break;
                 }
-
-                double eval = minimax(boardCopy, depth - 1, alpha, beta, false);
-                maxEval = Math.max(maxEval, eval);
-                alpha = Math.max(alpha, eval);
-                if (beta <= alpha)
-                    break;
             }
-            return maxEval;
-        } else {
-            double minEval = Double.POSITIVE_INFINITY;
-            for (MoveInformation move : legalMoves) {
-                ChessBoard boardCopy = new ChessBoard(board); // Deep copy
-                Piece piece = boardCopy.boardMatrix[move.location().getColumn()][move.location().getRow()].getPiece();
-                // simulate the move
-                try {
-                    piece.move(move.target());
-                } catch (InvalidLocationException e) {
-                    System.out.println(e.getMessage());
-                }
-                if (piece instanceof Pawn && ((Pawn) piece).isPromoted) {
-                    boardCopy.deletePromotedPawn(piece.getLocation());
+        }
+        return best;
+    }
+
+    // Parallel root search. The first move, most likely the best, is searched alone on the calling
+    // thread; its score becomes the alpha every other move has to beat. The other moves are then handed
+    // out one at a time to the searchers, each running on a pool thread with its own copy of the position.
+    // Whenever a searcher finds a better move it raises the shared alpha, and the moves started after
+    // that are tested against the higher bound.
+    private int searchRootParallel(int depth, int alpha, int beta) {
+        Searcher first = searchers[0];
+        rootBest = first.searchRootMove(rootMoves[0], depth, alpha, beta, true);
+        if (stopped)
+            return 0;
+        if (rootBest > alpha)
+            rootLine = first.lineAfter(rootMoves[0]);
+        if (rootBest >= beta)
+            return rootBest;
+
+        AtomicInteger sharedAlpha = new AtomicInteger(Math.max(alpha, rootBest));
+        AtomicInteger nextMove = new AtomicInteger(1);
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[searchers.length];
+        for (int i = 0; i < tasks.length; i++) {
+            Searcher searcher = searchers[i];
+            tasks[i] = SEARCH_POOL.submit(() -> searchRootMoves(searcher, depth, alpha, beta, sharedAlpha, nextMove));
+        }
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+        return rootBest;
+    }
+
+    private void searchRootMoves(Searcher searcher, int depth, int alpha, int beta, AtomicInteger sharedAlpha,
+            AtomicInteger nextMove) {
+        for (int i = nextMove.getAndIncrement(); i < rootMoveCount; i = nextMove.getAndIncrement()) {
+            int bound = sharedAlpha.get();
+            if (bound >= beta || stopped)
+                return;
+            int move = rootMoves[i];
+            int value = searcher.searchRootMove(move, depth, bound, beta, false);
+            if (stopped)
+                return;
+            synchronized (this) {
+                if (value > rootBest) {
+                    rootBest = value;
+                    if (value > bound)
+                        rootLine = searcher.lineAfter(move);
                 }
+            }
+            if (value > bound)
+                sharedAlpha.accumulateAndGet(value, Math::max);
+        }
+    }
 
-                double eval = minimax(boardCopy, depth - 1, alpha, beta, true);
-                minEval = Math.min(minEval, eval);
-                beta = Math.min(beta, eval);
-                if (beta <= alpha)
-                    break;
+    // Stops a running search from any thread, it returns the move of the last completed iteration.
+    void stop() {
+        stopped = true;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    // depth of the last completed iteration of the last search
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    // score of the last completed iteration, from the AI's point of view
+    public int getScore() {
+        return score;
+    }
+
+    // The principal variation of the last completed iteration: the best move and the replies both sides
+    // are expected to play after it. It may be shorter than the depth, the table ends some lines early.
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    // nodes visited by the last search, quiescence nodes included, over all threads
+    public long getNodeCount() {
+        long nodes = 0;
+        for (Searcher searcher : searchers)
+            nodes += searcher.getNodes();
+        for (Searcher helper : helpers)
+            nodes += helper.getNodes();
+        return nodes;
+    }
+
+    public void setNullMovePruning(boolean enabled) {
+        nullMovePruning = enabled;
+    }
+
+    public void setLateMoveReductions(boolean enabled) {
+        lateMoveReductions = enabled;
+    }
+
+    // futility and reverse futility pruning
+    public void setFutilityPruning(boolean enabled) {
+        futilityPruning = enabled;
+    }
+
+    // the evaluation from the point of view of the side to move
+    int evaluate(Position position) {
+        int score = evaluateBoard(position);
+        return position.getSideToMove() == aiColor ? score : -score;
+    }
+
+    // Before the first iteration the root moves are sorted like the moves of any other node: captures
+    // by MVV-LVA, then the quiet moves by the history kept from the previous searches.
+    // Later iterations only move their best move to the front.
+    private void orderRootMoves() {
+        int moveCount = rootMoveCount;
+        int[] scores = new int[moveCount];
+        for (int i = 0; i < moveCount; i++) {
+            int move = rootMoves[i];
+            scores[i] = MoveOrdering.isQuiet(move) ? searchers[0].ordering.historyScore(move)
+                    : (1 << 20) + MoveOrdering.captureScore(move);
+        }
+        // insertion sort, stable and short lists
+        for (int i = 1; i < moveCount; i++) {
+            int move = rootMoves[i], score = scores[i];
+            int j = i - 1;
+            for (; j >= 0 && scores[j] < score; j--) {
+                rootMoves[j + 1] = rootMoves[j];
+                scores[j + 1] = scores[j];
             }
-            return minEval;
+            rootMoves[j + 1] = move;
+            scores[j + 1] = score;
         }
     }
 
@@ -125,223 +474,148 @@ public class ChessAI {
         return score;
     } */
 
-    private double getPieceValue(Piece piece) {
-        if (piece instanceof Pawn) {
-            return 1.0;
-        } else if (piece instanceof Knight) {
-            return 3.0;
-        } else if (piece instanceof Bishop) {
-            return 3.0;
-        } else if (piece instanceof Rook) {
-            return 5.0;
-        } else if (piece instanceof Queen) {
-            return 9.0;
-        } else if (piece instanceof King) {
-            return 100.0;
-        } else {
-            return 0.0;
-        }
-    }
-
-    // Generate all legal moves for the given color
-    private List<MoveInformation> generateAllLegalMoves(ChessBoard board, int color) {
-        List<MoveInformation> moves = new ArrayList<>();
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                Piece piece = board.boardMatrix[i][j].getPiece();
-                if (piece != null && piece.getColor() == color) {
-                    String from = board.boardMatrix[i][j].getSquareSymbol();
-                    for (int x = 0; x < 8; x++) {
-                        for (int y = 0; y < 8; y++) {
-                            String to = board.boardMatrix[x][y].getSquareSymbol();
-                            // Skip if source and target are the same
-                            if (from.equals(to))
-                                continue;
-                            try {
-                                if (piece.canMove(to) && isMoveLegal(piece.getLocation(), to)) {
-                                    moves.add(new MoveInformation(piece.getLocation(), to));
-                                }
-                            } catch (InvalidLocationException e) {
-                                // Ignore invalid moves
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return moves;
-    }
-
-    private boolean isMoveLegal(Square source, String target) {
-        ChessBoard clonedBoard = new ChessBoard(source.getBoard()); // Deep copy
-        Piece piece = clonedBoard.boardMatrix[source.getColumn()][source.getRow()].getPiece();
-        // simulate the move
-        try {
-            piece.move(target);
-        } catch (InvalidLocationException e) {
-            System.out.println(e.getMessage());
-        }
-        if (piece instanceof Pawn && ((Pawn) piece).isPromoted) {
-            clonedBoard.deletePromotedPawn(piece.getLocation());
-        }
+    // indexed by Position piece type: pawn, knight, bishop, rook, queen, king
+    private static final int[] PIECE_VALUES = { 100, 300, 300, 500, 900, 10000 };
 
-        return !clonedBoard.isKingInCheck(piece.getColor());
+    private int getPieceValue(int type) {
+        return PIECE_VALUES[type];
     }
 
-    // Piece-square tables (example for pawns and knights, expand as needed)
-    private static final double[][] PAWN_TABLE = {
-            { 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0 },
-            { 0.5, 1.0, 1.0, -2.0, -2.0, 1.0, 1.0, 0.5 },
-            { 0.5, -0.5, -1.0, 0.0, 0.0, -1.0, -0.5, 0.5 },
-            { 0.0, 0.0, 0.0, 2.0, 2.0, 0.0, 0.0, 0.0 },
-            { 0.5, 0.5, 1.0, 2.5, 2.5, 1.0, 0.5, 0.5 },
-            { 1.0, 1.0, 2.0, 3.0, 3.0, 2.0, 1.0, 1.0 },
-            { 5.0, 5.0, 5.0, 5.0, 5.0, 5.0, 5.0, 5.0 },
-            { 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0 }
+    // Piece-square tables in centipawns (example for pawns and knights, expand as needed)
+    private static final int[][] PAWN_TABLE = {
+            { 0, 0, 0, 0, 0, 0, 0, 0 },
+            { 5, 10, 10, -20, -20, 10, 10, 5 },
+            { 5, -5, -10, 0, 0, -10, -5, 5 },
+            { 0, 0, 0, 20, 20, 0, 0, 0 },
+            { 5, 5, 10, 25, 25, 10, 5, 5 },
+            { 10, 10, 20, 30, 30, 20, 10, 10 },
+            { 50, 50, 50, 50, 50, 50, 50, 50 },
+            { 0, 0, 0, 0, 0, 0, 0, 0 }
     };
-    private static final double[][] KNIGHT_TABLE = {
-            { -5.0, -4.0, -3.0, -3.0, -3.0, -3.0, -4.0, -5.0 },
-            { -4.0, -2.0, 0.0, 0.0, 0.0, 0.0, -2.0, -4.0 },
-            { -3.0, 0.0, 1.0, 1.5, 1.5, 1.0, 0.0, -3.0 },
-            { -3.0, 0.5, 1.5, 2.0, 2.0, 1.5, 0.5, -3.0 },
-            { -3.0, 0.0, 1.5, 2.0, 2.0, 1.5, 0.0, -3.0 },
-            { -3.0, 0.5, 1.0, 1.5, 1.5, 1.0, 0.5, -3.0 },
-            { -4.0, -2.0, 0.0, 0.5, 0.5, 0.0, -2.0, -4.0 },
-            { -5.0, -4.0, -3.0, -3.0, -3.0, -3.0, -4.0, -5.0 }
+    private static final int[][] KNIGHT_TABLE = {
+            { -50, -40, -30, -30, -30, -30, -40, -50 },
+            { -40, -20, 0, 0, 0, 0, -20, -40 },
+            { -30, 0, 10, 15, 15, 10, 0, -30 },
+            { -30, 5, 15, 20, 20, 15, 5, -30 },
+            { -30, 0, 15, 20, 20, 15, 0, -30 },
+            { -30, 5, 10, 15, 15, 10, 5, -30 },
+            { -40, -20, 0, 5, 5, 0, -20, -40 },
+            { -50, -40, -30, -30, -30, -30, -40, -50 }
     };
     // Add more tables for other pieces if desired
 
-    private double evaluateBoard(ChessBoard board) {
-        double score = 0.0;
+    private int evaluateBoard(Position position) {
+        int score = 0;
         int myMobility = 0, oppMobility = 0;
         int myDevelopment = 0, oppDevelopment = 0;
         int myCenterControl = 0, oppCenterControl = 0;
 
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                Piece piece = board.boardMatrix[i][j].getPiece();
-                if (piece != null) {
-                    double value = getPieceValue(piece);
+        // Every piece is visited through the piece lists.
+        for (int color = ChessBoard.WHITE; color <= ChessBoard.BLACK; color++) {
+            int[] pieceList = position.pieceList(color);
+            long checkers = position.checkers(color);
+            long pinned = position.pinned(color);
+            for (int k = 0; k < position.pieceCount(color); k++) {
+                int square = pieceList[k];
+                int i = square & 7, j = square >> 3;
+                int type = Position.typeOf(position.pieceAt(square));
 
-                    // Piece-square table bonus
-                    value += getPieceSquareBonus(piece, i, j);
+                int value = getPieceValue(type);
 
-                    // Pawn structure
-                    if (piece instanceof Pawn) {
-                        value += getPawnStructureBonus(board, i, j, piece.getColor());
-                    }
+                // Piece-square table bonus
+                value += getPieceSquareBonus(type, color, i, j);
 
-                    // King safety
-                    if (piece instanceof King) {
-                        value += getKingSafetyBonus(board, i, j, piece.getColor());
-                    }
+                // Pawn structure
+                if (type == Position.PAWN) {
+                    value += getPawnStructureBonus(position, i, j, color);
+                }
+
+                // King safety
+                if (type == Position.KING) {
+                    value += getKingSafetyBonus(position, i, j, color);
+                }
 
-                    // Mobility
-                    int mobility = countLegalMoves(board, piece);
-                    if (piece.getColor() == aiColor)
-                        myMobility += mobility;
+                // Mobility
+                int mobility = countLegalMoves(position, square, checkers, pinned);
+                if (color == aiColor)
+                    myMobility += mobility;
+                else
+                    oppMobility += mobility;
+
+                // Development (minor pieces off back rank)
+                if ((type == Position.KNIGHT || type == Position.BISHOP) &&
+                        ((color == ChessBoard.WHITE && j != 0) ||
+                                (color == ChessBoard.BLACK && j != 7))) {
+                    if (color == aiColor)
+                        myDevelopment++;
                     else
-                        oppMobility += mobility;
-
-                    // Development (minor pieces off back rank)
-                    if ((piece instanceof Knight || piece instanceof Bishop) &&
-                            ((piece.getColor() == ChessBoard.WHITE && j != 0) ||
-                                    (piece.getColor() == ChessBoard.BLACK && j != 7))) {
-                        if (piece.getColor() == aiColor)
-                            myDevelopment++;
-                        else
-                            oppDevelopment++;
-                    }
-
-                    // Center control (e4, d4, e5, d5)
-                    String sq = board.boardMatrix[i][j].getSquareSymbol();
-                    if (sq.equals("e4") || sq.equals("d4") || sq.equals("e5") || sq.equals("d5")) {
-                        if (piece.getColor() == aiColor)
-                            myCenterControl++;
-                        else
-                            oppCenterControl++;
-                    }
+                        oppDevelopment++;
+                }
 
-                    score += (piece.getColor() == aiColor) ? value : -value;
+                // Center control (e4, d4, e5, d5)
+                if ((i == 3 || i == 4) && (j == 3 || j == 4)) {
+                    if (color == aiColor)
+                        myCenterControl++;
+                    else
+                        oppCenterControl++;
                 }
+
+                score += (color == aiColor) ? value : -value;
             }
         }
 
         // Add mobility, development, and center control differences
-        score += 0.1 * (myMobility - oppMobility);
-        score += 0.2 * (myDevelopment - oppDevelopment);
-        score += 0.3 * (myCenterControl - oppCenterControl);
+        score += 10 * (myMobility - oppMobility);
+        score += 20 * (myDevelopment - oppDevelopment);
+        score += 30 * (myCenterControl - oppCenterControl);
 
         return score;
     }
 
     // Piece-square table bonus
-    private double getPieceSquareBonus(Piece piece, int x, int y) {
+    private int getPieceSquareBonus(int type, int color, int x, int y) {
         // Flip table for black
-        int row = (piece.getColor() == ChessBoard.WHITE) ? y : 7 - y;
+        int row = (color == ChessBoard.WHITE) ? y : 7 - y;
         int col = x;
-        if (piece instanceof Pawn) {
-            return PAWN_TABLE[row][col] * 0.1;
-        } else if (piece instanceof Knight) {
-            return KNIGHT_TABLE[row][col] * 0.1;
+        if (type == Position.PAWN) {
+            return PAWN_TABLE[row][col];
+        } else if (type == Position.KNIGHT) {
+            return KNIGHT_TABLE[row][col];
         }
         // Add more for other pieces if desired
-        return 0.0;
+        return 0;
     }
 
     // Pawn structure heuristics
-    private double getPawnStructureBonus(ChessBoard board, int x, int y, int color) {
-        double bonus = 0.0;
+    private int getPawnStructureBonus(Position position, int x, int y, int color) {
+        int bonus = 0;
+        long ownPawns = position.pieces(color, Position.PAWN);
+        long enemyPawns = position.pieces(1 - color, Position.PAWN);
+
         // Isolated pawn
-        boolean isolated = true;
-        for (int dx = -1; dx <= 1; dx += 2) {
-            int nx = x + dx;
-            if (nx >= 0 && nx < 8) {
-                for (int j = 0; j < 8; j++) {
-                    Piece neighbor = board.boardMatrix[nx][j].getPiece();
-                    if (neighbor instanceof Pawn && neighbor.getColor() == color) {
-                        isolated = false;
-                        break;
-                    }
-                }
-            }
-        }
-        if (isolated)
-            bonus -= 0.2;
+        long neighborFiles = (x > 0 ? FILE_A << (x - 1) : 0) | (x < 7 ? FILE_A << (x + 1) : 0);
+        if ((ownPawns & neighborFiles) == 0)
+            bonus -= 20;
 
         // Doubled pawn
-        int count = 0;
-        for (int j = 0; j < 8; j++) {
-            Piece p = board.boardMatrix[x][j].getPiece();
-            if (p instanceof Pawn && p.getColor() == color)
-                count++;
-        }
-        if (count > 1)
-            bonus -= 0.2;
+        if (Long.bitCount(ownPawns & (FILE_A << x)) > 1)
+            bonus -= 20;
 
         // Passed pawn
-        boolean passed = true;
-        int dir = (color == ChessBoard.WHITE) ? 1 : -1;
-        for (int nx = x - 1; nx <= x + 1; nx++) {
-            if (nx < 0 || nx > 7)
-                continue;
-            for (int j = y + dir; (color == ChessBoard.WHITE ? j < 8 : j >= 0); j += dir) {
-                Piece p = board.boardMatrix[nx][j].getPiece();
-                if (p instanceof Pawn && p.getColor() != color) {
-                    passed = false;
-                    break;
-                }
-            }
-        }
-        if (passed)
-            bonus += 0.3;
+        long front = color == ChessBoard.WHITE ? -1L << (8 * (y + 1)) : (1L << (8 * y)) - 1;
+        if (y == 7 && color == ChessBoard.WHITE)
+            front = 0;
+        if ((enemyPawns & front & (neighborFiles | FILE_A << x)) == 0)
+            bonus += 30;
 
         return bonus;
     }
 
+    private static final long FILE_A = 0x0101010101010101L;
+
     // King safety heuristics
-    private double getKingSafetyBonus(ChessBoard board, int x, int y, int color) {
-        double bonus = 0.0;
+    private int getKingSafetyBonus(Position position, int x, int y, int color) {
+        int bonus = 0;
         // Penalize king with no pawns nearby
         int pawnShield = 0;
         int dir = (color == ChessBoard.WHITE) ? 1 : -1;
@@ -349,45 +623,28 @@ public class ChessAI {
             int nx = x + dx;
             int ny = y + dir;
             if (nx >= 0 && nx < 8 && ny >= 0 && ny < 8) {
-                Piece p = board.boardMatrix[nx][ny].getPiece();
-                if (p instanceof Pawn && p.getColor() == color)
+                if (position.pieceAt(Position.squareIndex(nx, ny)) == Position.makePiece(color, Position.PAWN))
                     pawnShield++;
             }
         }
         if (pawnShield == 0)
-            bonus -= 0.5;
+            bonus -= 50;
         else if (pawnShield == 1)
-            bonus -= 0.2;
+            bonus -= 20;
         else if (pawnShield == 2)
-            bonus += 0.1;
+            bonus += 10;
         else if (pawnShield == 3)
-            bonus += 0.2;
+            bonus += 20;
 
         // Penalize king in the center in the opening
         if ((x >= 2 && x <= 5) && (y >= 2 && y <= 5))
-            bonus -= 0.2;
+            bonus -= 20;
 
         return bonus;
     }
 
     // Mobility: count legal moves for a piece
-    private int countLegalMoves(ChessBoard board, Piece piece) {
-        int count = 0;
-        String from = piece.getLocation().getSquareSymbol();
-        for (int x = 0; x < 8; x++) {
-            for (int y = 0; y < 8; y++) {
-                String to = board.boardMatrix[x][y].getSquareSymbol();
-                if (from.equals(to))
-                    continue;
-                try {
-                    if (piece.canMove(to) && isMoveLegal(piece.getLocation(), to)) {
-                        count++;
-                    }
-                } catch (InvalidLocationException e) {
-                    // Ignore
-                }
-            }
-        }
-        return count;
+    private int countLegalMoves(Position position, int from, long checkers, long pinned) {
+        return Long.bitCount(MoveGenerator.legalTargets(position, from, checkers, pinned));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package chess.src.ai;
+
+import chess.src.board.Move;
+import chess.src.board.Position;
+
+// What the search has learned about good moves, used to try them first. Alpha-beta prunes the most
+// when the best move of a node comes first, a cutoff after the first move skips all the others.
+// - captures: most valuable victim first, among equal victims the least valuable attacker (MVV-LVA)
+// - killers: two quiet moves per ply that caused a cutoff in a sibling node
+// - counter moves: the quiet move that last refuted a move, by piece and target square of that move
+// - history: how often a quiet move caused a cutoff anywhere in the tree, by side, from and to square
+// Everything is kept in plain int arrays and is owned by one search, it is never shared between threads.
+class MoveOrdering {
+    // victim values for MVV-LVA, indexed by piece type
+    private static final int[] VICTIM_VALUES = { 1, 3, 3, 5, 9, 0 };
+    // history scores stay within +-HISTORY_MAX, see updateHistory
+    private static final int HISTORY_MAX = 1 << 14;
+
+    private final int[][] killers;
+    private final int[] counterMoves = new int[Position.NO_PIECE * 64]; // [piece * 64 + to]
+    private final int[] history = new int[2 * 64 * 64]; // [color << 12 | from << 6 | to]
+
+    MoveOrdering(int maxPly) {
+        killers = new int[maxPly + 1][2];
+    }
+
+    // Starts a new search: the killers belong to the old plies and are dropped, the history is
+    // halved so that it follows the game but still helps from the first iteration on.
+    void newSearch() {
+        for (int[] slots : killers)
+            slots[0] = slots[1] = Move.NONE;
+        for (int i = 0; i < history.length; i++)
+            history[i] /= 2;
+    }
+
+    int killer1(int ply) {
+        return killers[ply][0];
+    }
+
+    int killer2(int ply) {
+        return killers[ply][1];
+    }
+
+    // the move that last refuted previousMove, Move.NONE if there is none
+    int counterMove(int previousMove) {
+        return previousMove == Move.NONE ? Move.NONE
+                : counterMoves[Move.piece(previousMove) * 64 + Move.to(previousMove)];
+    }
+
+    int historyScore(int move) {
+        return history[historyIndex(move)];
+    }
+
+    static boolean isQuiet(int move) {
+        return !Move.isCapture(move) && Move.promotion(move) == 0;
+    }
+
+    // MVV-LVA, promotions count as queen captures
+    static int captureScore(int move) {
+        int victim = Move.isCapture(move) ? VICTIM_VALUES[Position.typeOf(Move.captured(move))] : 0;
+        if (Move.promotion(move) == Position.QUEEN)
+            victim += VICTIM_VALUES[Position.QUEEN];
+        return victim * 8 - Position.typeOf(Move.piece(move));
+    }
+
+    // Called when move caused a cutoff at the given ply. A quiet move becomes a killer and the counter
+    // move of previousMove, and its history grows; the quiet moves tried before it failed, theirs shrinks.
+    void cutoff(int ply, int depth, int move, int previousMove, int[] quietsTried, int quietCount) {
+        if (!isQuiet(move))
+            return;
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        if (previousMove != Move.NONE)
+            counterMoves[Move.piece(previousMove) * 64 + Move.to(previousMove)] = move;
+
+        int bonus = Math.min(depth * depth, 400);
+        updateHistory(move, bonus);
+        for (int i = 0; i < quietCount; i++)
+            if (quietsTried[i] != move)
+                updateHistory(quietsTried[i], -bonus);
+    }
+
+    // the change shrinks as the score nears +-HISTORY_MAX, so it never leaves that range
+    private void updateHistory(int move, int bonus) {
+        int index = historyIndex(move);
+        history[index] += bonus - history[index] * Math.abs(bonus) / HISTORY_MAX;
+    }
+
+    private static int historyIndex(int move) {
+        return Position.colorOf(Move.piece(move)) << 12 | Move.from(move) << 6 | Move.to(move);
+    }
+}
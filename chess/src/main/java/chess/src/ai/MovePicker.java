@@ -0,0 +1,142 @@
+package chess.src.ai;
+
+import chess.src.board.Move;
+import chess.src.board.MoveGenerator;
+import chess.src.board.Position;
+
+// Hands out the legal moves of a node one at a time, in stages:
+// 1. the hash move, the best move found for this position before
+// 2. captures and promotions, the most valuable victim first
+// 3. the killer moves and the counter move of the previous move (see MoveOrdering)
+// 4. the other quiet moves, the highest history score first
+// A stage is generated only when the previous one is used up, so a node whose first moves
+// cause a cutoff never generates its quiet moves. One picker is kept per ply and reused.
+// The quiescence search only asks for stage 2, see initCaptures.
+class MovePicker {
+    private static final int HASH_MOVE = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int CAPTURES = 2;
+    private static final int REFUTATIONS = 3;
+    private static final int GENERATE_QUIETS = 4;
+    private static final int QUIETS = 5;
+    private static final int DONE = 6;
+
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+    // killer 1, killer 2 and the counter move, Move.NONE where unusable or already handed out
+    private final int[] refutations = new int[3];
+    private Position position;
+    private MoveOrdering ordering;
+    private int hashMove;
+    private int stage, count, index;
+    private boolean capturesOnly;
+
+    void init(Position position, int hashMove, MoveOrdering ordering, int ply) {
+        this.position = position;
+        this.ordering = ordering;
+        this.hashMove = hashMove;
+        refutations[0] = ordering.killer1(ply);
+        refutations[1] = ordering.killer2(ply);
+        refutations[2] = ordering.counterMove(position.lastMove());
+        this.stage = HASH_MOVE;
+        this.count = 0;
+        this.index = 0;
+        this.capturesOnly = false;
+    }
+
+    // hands out the captures and promotions only
+    void initCaptures(Position position) {
+        this.position = position;
+        this.hashMove = Move.NONE;
+        this.stage = GENERATE_CAPTURES;
+        this.count = 0;
+        this.index = 0;
+        this.capturesOnly = true;
+    }
+
+    // the next legal move, Move.NONE when there are no more
+    int next() {
+        while (true) {
+            switch (stage) {
+                case HASH_MOVE:
+                    stage = GENERATE_CAPTURES;
+                    if (hashMove != Move.NONE && position.isMoveLegal(hashMove))
+                        return hashMove;
+                    break;
+                case GENERATE_CAPTURES:
+                    count = MoveGenerator.generateCaptures(position, position.getSideToMove(), moves);
+                    for (int i = 0; i < count; i++)
+                        scores[i] = MoveOrdering.captureScore(moves[i]);
+                    index = 0;
+                    stage = CAPTURES;
+                    break;
+                case CAPTURES:
+                    if (index < count) {
+                        int move = pickBest();
+                        if (move != hashMove)
+                            return move;
+                        break;
+                    }
+                    stage = capturesOnly ? DONE : REFUTATIONS;
+                    index = 0;
+                    break;
+                case REFUTATIONS:
+                    if (index == refutations.length) {
+                        stage = GENERATE_QUIETS;
+                        break;
+                    }
+                    int refutation = refutations[index];
+                    if (!isUsableRefutation(refutation, index))
+                        refutations[index] = refutation = Move.NONE;
+                    index++;
+                    if (refutation != Move.NONE)
+                        return refutation;
+                    break;
+                case GENERATE_QUIETS:
+                    count = MoveGenerator.generateQuiets(position, position.getSideToMove(), moves);
+                    for (int i = 0; i < count; i++)
+                        scores[i] = ordering.historyScore(moves[i]);
+                    index = 0;
+                    stage = QUIETS;
+                    break;
+                case QUIETS:
+                    if (index < count) {
+                        int move = pickBest();
+                        if (move != hashMove && move != refutations[0] && move != refutations[1]
+                                && move != refutations[2])
+                            return move;
+                        break;
+                    }
+                    stage = DONE;
+                    break;
+                default:
+                    return Move.NONE;
+            }
+        }
+    }
+
+    // a killer or counter move comes from another node, it is only tried if it is a legal quiet move here
+    // and has not been handed out already
+    private boolean isUsableRefutation(int move, int slot) {
+        if (move == Move.NONE || move == hashMove || !MoveOrdering.isQuiet(move))
+            return false;
+        for (int i = 0; i < slot; i++)
+            if (refutations[i] == move)
+                return false;
+        return position.isMoveLegal(move);
+    }
+
+    // swaps the best remaining move to the current index and returns it (selection sort, one step per move)
+    private int pickBest() {
+        int best = index;
+        for (int i = index + 1; i < count; i++)
+            if (scores[i] > scores[best])
+                best = i;
+        int move = moves[best];
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+        moves[index] = move;
+        index++;
+        return move;
+    }
+}
@@ -0,0 +1,153 @@
+package chess.src.ai;
+
+import chess.src.board.Move;
+import chess.src.board.Position;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Opening book: the moves to play in known opening positions, without searching.
+//
+// The book is a file of ENTRY_BYTES entries laid out like a Polyglot book, sorted by key:
+//   8 bytes  key, the Zobrist hash of the position (Position.hash, not the Polyglot key)
+//   2 bytes  move: to square (bits 0-5), from square (bits 6-11), promotion type (bits 12-14);
+//            castling is written as the king taking its own rook (e1h1), as Polyglot does
+//   2 bytes  weight, how often the move should be chosen compared to the others of the position
+//   4 bytes  unused (the Polyglot learn field)
+// The file is mapped into memory and never copied; a lookup is a binary search over the mapping,
+// reading with absolute gets only, so a single book is shared read-only by all games and threads.
+public class OpeningBook {
+    static final int ENTRY_BYTES = 16;
+    // the bundled book, built from this list of opening lines, see OpeningBookBuilder
+    private static final String DEFAULT_LINES = "/book/openings.txt";
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // The book of the application: the file named by the system property chess.book if it is set,
+    // otherwise the bundled opening lines, built into a temporary file on first use.
+    // null if the book cannot be loaded: it is optional, the AI then searches every move.
+    public static OpeningBook getDefault() {
+        return DefaultBook.INSTANCE;
+    }
+
+    private static class DefaultBook {
+        static final OpeningBook INSTANCE = load(System.getProperty("chess.book"), DEFAULT_LINES);
+    }
+
+    // The book file at the path, or if the path is null the opening lines of the resource built into
+    // a temporary file. Never throws: a failure while initializing DefaultBook would make it unusable
+    // until the JVM restarts, so it is logged and null returned.
+    static OpeningBook load(String path, String linesResource) {
+        try {
+            if (path != null)
+                return open(Path.of(path));
+            Path file = Files.createTempFile("chess-book", ".bin");
+            file.toFile().deleteOnExit();
+            OpeningBookBuilder builder = new OpeningBookBuilder();
+            try (InputStream lines = OpeningBook.class.getResourceAsStream(linesResource)) {
+                if (lines == null)
+                    throw new IOException("Missing resource " + linesResource);
+                builder.addLines(lines);
+            }
+            builder.write(file);
+            return open(file);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Cannot load the opening book, the AI plays without it: " + e);
+            return null;
+        }
+    }
+
+    // number of entries
+    public int size() {
+        return size;
+    }
+
+    // A book move for the position, chosen at random in proportion to the weights, encoded as
+    // described in Move. Move.NONE if the position is not in the book.
+    public int probe(Position position) {
+        long key = position.hash();
+        int first = firstEntry(key);
+        int totalWeight = 0;
+        for (int i = first; i < size && key(i) == key; i++)
+            totalWeight += weight(i);
+        if (totalWeight == 0)
+            return Move.NONE;
+
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = first; i < size && key(i) == key; i++) {
+            pick -= weight(i);
+            if (pick < 0)
+                return toMove(position, bookMove(i));
+        }
+        return Move.NONE;
+    }
+
+    // the index of the first entry whose key is not below the given one (keys compare unsigned)
+    private int firstEntry(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(middle), key) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private long key(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    private int bookMove(int index) {
+        return entries.getShort(index * ENTRY_BYTES + 8) & 0xFFFF;
+    }
+
+    private int weight(int index) {
+        return entries.getShort(index * ENTRY_BYTES + 10) & 0xFFFF;
+    }
+
+    // the book move as a move of the position, Move.NONE if it is not legal there (a hash collision)
+    private static int toMove(Position position, int bookMove) {
+        int from = (bookMove >> 6) & 63;
+        int to = bookMove & 63;
+        int promotion = (bookMove >> 12) & 7;
+        int piece = position.pieceAt(from);
+        if (piece == Position.NO_PIECE)
+            return Move.NONE;
+        // castling: the king goes two squares towards the rook it "takes"
+        int target = position.pieceAt(to);
+        if (Position.typeOf(piece) == Position.KING && target != Position.NO_PIECE
+                && Position.colorOf(target) == Position.colorOf(piece))
+            to = to > from ? from + 2 : from - 2;
+        int move = position.createMove(from, to, promotion);
+        return position.isMoveLegal(move) ? move : Move.NONE;
+    }
+
+    // the move of the position in the book encoding
+    static int toBookMove(int move) {
+        int from = Move.from(move), to = Move.to(move);
+        if (Move.flags(move) == Move.CASTLING)
+            to = to > from ? from + 3 : from - 4; // the rook's corner
+        return Move.promotion(move) << 12 | from << 6 | to;
+    }
+}
@@ -0,0 +1,116 @@
+package chess.src.ai;
+
+import chess.src.board.ChessBoard;
+import chess.src.board.InvalidLocationException;
+import chess.src.board.Move;
+import chess.src.board.Position;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Builds an OpeningBook file from opening lines, e.g. the bundled book/openings.txt:
+// one line per game start, moves in coordinate notation ("e2e4 e7e5 g1f3", "e7e8q" for a promotion,
+// castling as the king's move), empty lines and lines starting with '#' are skipped.
+// Every move of a line is added for the position it is played in; a move added again gets a higher weight.
+//
+// Usage: java chess.src.ai.OpeningBookBuilder <lines file> <book file>
+public class OpeningBookBuilder {
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    // weight of every (position, book move), by the key and book move packed into a record
+    private final Map<Entry, Integer> weights = new HashMap<>();
+
+    private record Entry(long key, int bookMove) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: java chess.src.ai.OpeningBookBuilder <lines file> <book file>");
+            return;
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        try (InputStream lines = Files.newInputStream(Path.of(args[0]))) {
+            builder.addLines(lines);
+        }
+        builder.write(Path.of(args[1]));
+        System.out.println(builder.weights.size() + " entries written to " + args[1]);
+    }
+
+    public void add(Position position, int move) {
+        weights.merge(new Entry(position.hash(), OpeningBook.toBookMove(move)), 1,
+                (a, b) -> Math.min(MAX_WEIGHT, a + b));
+    }
+
+    // Adds every move of the line, played from the start position. An illegal or unreadable move
+    // fails with an IllegalArgumentException naming it.
+    public void addLine(String line) {
+        Position position = new ChessBoard().getPosition();
+        for (String text : line.trim().split("\\s+")) {
+            int move = parseMove(position, text);
+            if (move == Move.NONE || !position.isMoveLegal(move))
+                throw new IllegalArgumentException("Illegal move " + text + " in opening line: " + line);
+            add(position, move);
+            position.makeMove(move);
+        }
+    }
+
+    public void addLines(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#"))
+                addLine(line);
+        }
+    }
+
+    // Writes the book, sorted by key so that it can be searched, and by weight within a position.
+    public void write(Path file) throws IOException {
+        List<Map.Entry<Entry, Integer>> sorted = new ArrayList<>(weights.entrySet());
+        sorted.sort((a, b) -> {
+            int byKey = Long.compareUnsigned(a.getKey().key(), b.getKey().key());
+            return byKey != 0 ? byKey : Integer.compare(b.getValue(), a.getValue());
+        });
+        ByteBuffer buffer = ByteBuffer.allocate(sorted.size() * OpeningBook.ENTRY_BYTES);
+        for (Map.Entry<Entry, Integer> entry : sorted) {
+            buffer.putLong(entry.getKey().key());
+            buffer.putShort((short) entry.getKey().bookMove());
+            buffer.putShort((short) (int) entry.getValue());
+            buffer.putInt(0);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    // "e2e4", "e7e8q"; Move.NONE if the text is not a move
+    private static int parseMove(Position position, String text) {
+        if (text.length() != 4 && text.length() != 5)
+            return Move.NONE;
+        try {
+            int from = ChessBoard.parseSquare(text.substring(0, 2));
+            int to = ChessBoard.parseSquare(text.substring(2, 4));
+            int promotion = text.length() == 5 ? "pnbrq".indexOf(text.charAt(4)) : 0;
+            if (promotion < 0 || position.pieceAt(from) == Position.NO_PIECE)
+                return Move.NONE;
+            return position.createMove(from, to, promotion);
+        } catch (InvalidLocationException e) {
+            return Move.NONE;
+        }
+    }
+}
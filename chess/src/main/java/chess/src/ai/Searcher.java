@@ -0,0 +1,362 @@
+package chess.src.ai;
+
+import chess.src.board.Move;
+import chess.src.board.MoveGenerator;
+import chess.src.board.Position;
+
+// One search thread of a ChessAI: its own copy of the position and everything the search keeps per ply
+// (move pickers, principal variation table) and learns on the way (move ordering). Only the transposition
+// table and the time limit are shared with the other threads of the same AI.
+class Searcher {
+    // plies from the root the search can reach, the quiescence search goes on below maxDepth
+    static final int MAX_PLY = 128;
+    static final int INFINITY = 1_000_000;
+    static final int MATE_SCORE = 100_000;
+    // scores beyond this are mates, their distance to the root is adjusted in the transposition table
+    static final int MATE_BOUND = MATE_SCORE - 1000;
+    static final int DRAW_SCORE = 0;
+    // how much a node may be worse than alpha, or better than beta, and still be searched; indexed by depth
+    // block sizes and shifts of the skipped depths, by helper, see skipsDepth
+    private static final int[] SKIP_SIZE = { 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4 };
+    private static final int[] SKIP_PHASE = { 0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7 };
+    private static final int[] FUTILITY_MARGINS = { 0, 200, 350 };
+    private static final int REVERSE_FUTILITY_MARGIN = 120; // per ply of depth
+    // depth reduction of a late quiet move, by depth and move number
+    private static final int[][] REDUCTIONS = new int[ChessAI.MAX_DEPTH + 1][MoveGenerator.MAX_MOVES + 1];
+
+    static {
+        for (int depth = 1; depth <= ChessAI.MAX_DEPTH; depth++)
+            for (int moves = 1; moves <= MoveGenerator.MAX_MOVES; moves++)
+                REDUCTIONS[depth][moves] = (int) (0.75 + Math.log(depth) * Math.log(moves) / 2.25);
+    }
+
+    private final ChessAI ai;
+    private final TranspositionTable table;
+    private final TimeManager timeManager;
+    private Position position;
+    // one move picker per ply, reused by every node at that ply
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    // the quiet moves searched so far in the current node of each ply, their history shrinks on a cutoff
+    private final int[][] quietsTried = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    final MoveOrdering ordering = new MoveOrdering(MAX_PLY);
+    private final StaticExchange exchange = new StaticExchange();
+    // Triangular principal variation table: pv[ply] holds the best line found from the node at that ply,
+    // from index ply up to pvLength[ply]. A node copies the line of its best child behind its own move.
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    // nodes visited in the current search, the clock is looked at every 1024 nodes
+    private long nodes;
+    // set when the search is stopped, every node then returns at once
+    private boolean aborted;
+
+    Searcher(ChessAI ai, TranspositionTable table, TimeManager timeManager) {
+        this.ai = ai;
+        this.table = table;
+        this.timeManager = timeManager;
+        for (int i = 0; i < MAX_PLY; i++)
+            pickers[i] = new MovePicker();
+    }
+
+    // Starts a new search from the root position. The position is copied, every node makes and
+    // unmakes its moves on the copy.
+    void startSearch(Position root) {
+        position = new Position(root);
+        ordering.newSearch();
+        nodes = 0;
+        aborted = false;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    // The score of a root move. A move after the first one only has to be proven worse than alpha
+    // with a null window, and is searched with the full window only if it is not.
+    int searchRootMove(int move, int depth, int alpha, int beta, boolean firstMove) {
+        pvLength[0] = 0;
+        position.makeMove(move);
+        int value;
+        if (firstMove) {
+            value = -negamax(position, depth - 1, 1, -beta, -alpha);
+        } else {
+            value = -negamax(position, depth - 1, 1, -alpha - 1, -alpha);
+            if (value > alpha && value < beta)
+                value = -negamax(position, depth - 1, 1, -beta, -alpha);
+        }
+        position.unmakeMove();
+        return value;
+    }
+
+    // Lazy SMP helper: searches the root on its own, deepening until the search is stopped.
+    // Its results are never played, it only fills the shared transposition table, from which the main
+    // search then takes scores and best moves it has not searched itself.
+    // The helpers skip depths (see skipsDepth), so that at any time they search different depths from
+    // each other and from the main search, and reach different parts of the tree first.
+    void searchAsHelper(int[] rootMoves, int helper, int maxDepth) {
+        int moveCount = rootMoves.length;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (skipsDepth(helper, depth))
+                continue;
+            int best = -INFINITY;
+            int bestIndex = 0;
+            for (int i = 0; i < moveCount; i++) {
+                int value = searchRootMove(rootMoves[i], depth, best, INFINITY, i == 0);
+                if (aborted)
+                    return;
+                if (value > best) {
+                    best = value;
+                    bestIndex = i;
+                }
+            }
+            int bestMove = rootMoves[bestIndex];
+            System.arraycopy(rootMoves, 0, rootMoves, 1, bestIndex);
+            rootMoves[0] = bestMove;
+        }
+    }
+
+    // Skip-depth scheme of Lazy SMP: helper i searches depths in blocks of SKIP_SIZE[i] iterations and
+    // skips every second block, its blocks shifted by SKIP_PHASE[i]. Helpers 0 and 1 take the even and
+    // the odd depths, the next ones skip in longer blocks with every shift, so the depths stay staggered
+    // on every iteration and not only on the first one.
+    static boolean skipsDepth(int helper, int depth) {
+        int i = helper % SKIP_SIZE.length;
+        return (depth + SKIP_PHASE[i]) / SKIP_SIZE[i] % 2 != 0;
+    }
+
+    // the root move followed by the principal variation found below it by the last searchRootMove
+    int[] lineAfter(int move) {
+        int[] line = new int[Math.max(1, pvLength[1])];
+        line[0] = move;
+        System.arraycopy(pv[1], 1, line, 1, line.length - 1);
+        return line;
+    }
+
+    // the time is looked at by every thread, whichever finds it up stops them all
+    private void checkStop() {
+        if (timeManager.isTimeUp())
+            ai.stop();
+        aborted = ai.isStopped();
+    }
+
+    // Principal variation search, the negamax form of alpha-beta: the score of a node is the negated
+    // score of its best child, so both sides are handled by the same code.
+    // The first move of a node is searched with the full window. Every later move only has to be proven
+    // worse than it, which a null window (alpha, alpha + 1) does much faster; only a move that turns
+    // out better is searched again with the full window.
+    // The moves come from a MovePicker, so a cutoff early in the list saves generating the rest.
+    // Every result is stored in the transposition table: its best move is tried first when the position
+    // is searched again, and outside the principal variation its score ends the search of the position
+    // at once if it was searched at least as deep before.
+    // Outside the principal variation the search is selective:
+    // - reverse futility pruning: a node near the leaves whose static evaluation is better than beta
+    //   by a margin growing with the depth is cut off without searching it
+    // - null move pruning: the side to move passes and the opponent searches 2-3 plies less; if the
+    //   opponent cannot get below beta even then, a real move will not either. Not in zugzwang-prone
+    //   positions where passing may be the best move: in check or with only the king and pawns left.
+    // - futility pruning: at the last two plies, when even a margin on top of the static evaluation does
+    //   not reach alpha, only captures, promotions and checks are searched after the first move
+    // - late move reductions: quiet moves late in the list are searched less deep first, and only
+    //   again at full depth when they beat alpha
+    // Once the time is up every node returns at once without storing anything, the caller
+    // throws the result away.
+    int negamax(Position position, int depth, int ply, int alpha, int beta) {
+        if (depth <= 0)
+            return quiescence(position, ply, alpha, beta);
+        pvLength[ply] = ply;
+        if ((++nodes & 1023) == 0)
+            checkStop();
+        if (aborted)
+            return 0;
+
+        // a repeated position is scored as a draw at once, the game history is on the position's undo stack
+        if (position.isDeadPosition() || position.isRepetition() || position.isFiftyMoveDraw())
+            return DRAW_SCORE;
+        if (ply >= MAX_PLY - 1)
+            return ai.evaluate(position);
+
+        boolean pvNode = beta - alpha > 1;
+        long key = position.hash();
+        long entry = table.probe(key);
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha))
+                    return score;
+            }
+        }
+
+        int us = position.getSideToMove();
+        boolean inCheck = position.isInCheck(us);
+        int staticEval = 0;
+        if (!pvNode && !inCheck) {
+            staticEval = ai.evaluate(position);
+            if (ai.futilityPruning && depth <= 3 && Math.abs(beta) < MATE_BOUND
+                    && staticEval - REVERSE_FUTILITY_MARGIN * depth >= beta)
+                return staticEval;
+
+            if (ai.nullMovePruning && depth >= 3 && staticEval >= beta && position.lastMove() != Move.NONE
+                    && hasPiecesBesidesPawns(position, us)) {
+                int reduction = depth >= 7 ? 3 : 2;
+                position.makeNullMove();
+                int value = -negamax(position, depth - 1 - reduction, ply + 1, -beta, -beta + 1);
+                position.unmakeNullMove();
+                if (aborted)
+                    return 0;
+                if (value >= beta)
+                    return value >= MATE_BOUND ? beta : value; // an unproven mate
+            }
+        }
+        boolean futile = ai.futilityPruning && !pvNode && !inCheck && depth < FUTILITY_MARGINS.length
+                && Math.abs(alpha) < MATE_BOUND && staticEval + FUTILITY_MARGINS[depth] <= alpha;
+
+        int originalAlpha = alpha;
+        MovePicker picker = pickers[ply];
+        picker.init(position, hashMove, ordering, ply);
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        int legalMoves = 0;
+        int quietCount = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            legalMoves++;
+            boolean quiet = MoveOrdering.isQuiet(move);
+            position.makeMove(move);
+            boolean givesCheck = position.isInCheck(position.getSideToMove());
+            if (futile && legalMoves > 1 && quiet && !givesCheck) {
+                position.unmakeMove();
+                continue;
+            }
+            int value;
+            if (legalMoves == 1) {
+                value = -negamax(position, depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                int reduction = 0;
+                if (ai.lateMoveReductions && depth >= 3 && legalMoves > 3 && quiet && !inCheck && !givesCheck
+                        && move != ordering.killer1(ply) && move != ordering.killer2(ply)) {
+                    reduction = REDUCTIONS[Math.min(depth, ChessAI.MAX_DEPTH)][legalMoves] - (pvNode ? 1 : 0);
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
+                }
+                value = -negamax(position, depth - 1 - reduction, ply + 1, -alpha - 1, -alpha);
+                if (reduction > 0 && value > alpha)
+                    value = -negamax(position, depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (value > alpha && value < beta)
+                    value = -negamax(position, depth - 1, ply + 1, -beta, -alpha);
+            }
+            position.unmakeMove();
+            if (aborted)
+                return 0;
+
+            if (value > best) {
+                best = value;
+                if (value > alpha) {
+                    alpha = value;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        ordering.cutoff(ply, depth, move, position.lastMove(), quietsTried[ply], quietCount);
+                        break;
+                    }
+                }
+            }
+            if (quiet)
+                quietsTried[ply][quietCount++] = move;
+        }
+        if (legalMoves == 0)
+            return noMoveScore(position, ply);
+
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, bestMove, depth, bound, toTable(best, ply));
+        return best;
+    }
+
+    // Quiescence search: below the nominal depth only captures and promotions are searched, until the
+    // position is quiet. The side to move may also stop capturing and keep the static evaluation
+    // (stand pat), so a node is cut off at once when the evaluation alone already reaches beta.
+    // Captures that lose material by static exchange evaluation are not searched at all.
+    // A side in check has to answer it, all its moves are searched and a mate is found.
+    private int quiescence(Position position, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if ((++nodes & 1023) == 0)
+            checkStop();
+        if (aborted)
+            return 0;
+        if (position.isDeadPosition())
+            return DRAW_SCORE;
+        if (ply >= MAX_PLY - 1)
+            return ai.evaluate(position);
+
+        boolean inCheck = position.isInCheck(position.getSideToMove());
+        int best = -INFINITY;
+        MovePicker picker = pickers[ply];
+        if (inCheck) {
+            picker.init(position, Move.NONE, ordering, ply);
+        } else {
+            best = ai.evaluate(position);
+            if (best >= beta)
+                return best;
+            alpha = Math.max(alpha, best);
+            picker.initCaptures(position);
+        }
+
+        int legalMoves = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            legalMoves++;
+            if (!inCheck && exchange.evaluate(position, move) < 0)
+                continue;
+            position.makeMove(move);
+            int value = -quiescence(position, ply + 1, -beta, -alpha);
+            position.unmakeMove();
+            if (aborted)
+                return 0;
+
+            if (value > best) {
+                best = value;
+                if (value > alpha) {
+                    alpha = value;
+                    updatePv(ply, move);
+                    if (alpha >= beta)
+                        break;
+                }
+            }
+        }
+        if (inCheck && legalMoves == 0)
+            return -MATE_SCORE + ply;
+        return best;
+    }
+
+    // the line of the node at ply becomes its move followed by the line of the child
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    // checkmate scores beyond any evaluation, a nearer mate scores higher; stalemate is a draw
+    private int noMoveScore(Position position, int ply) {
+        return position.isInCheck(position.getSideToMove()) ? -MATE_SCORE + ply : DRAW_SCORE;
+    }
+
+    // Null move pruning is unsafe in zugzwang, where every move makes the position worse. That happens
+    // almost only in endgames with the king and pawns, so a side without other pieces never passes.
+    private static boolean hasPiecesBesidesPawns(Position position, int color) {
+        return position.pieceCount(color, Position.KNIGHT) + position.pieceCount(color, Position.BISHOP)
+                + position.pieceCount(color, Position.ROOK) + position.pieceCount(color, Position.QUEEN) > 0;
+    }
+
+    // Mate scores count the plies from the root. The table stores them counted from the node instead,
+    // so that they stay right when the position is found at another ply.
+    private static int toTable(int score, int ply) {
+        return score >= MATE_BOUND ? score + ply : score <= -MATE_BOUND ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score >= MATE_BOUND ? score - ply : score <= -MATE_BOUND ? score + ply : score;
+    }
+}
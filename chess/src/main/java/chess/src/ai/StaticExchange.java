@@ -0,0 +1,61 @@
+package chess.src.ai;
+
+import chess.src.board.Move;
+import chess.src.board.Position;
+
+// Static exchange evaluation: the material a capture wins or loses once both sides have captured
+// on its target square as long as it pays, always with their least valuable attacker.
+// Nothing is played on the position, the exchange is followed on an occupancy bitboard only.
+// A slider behind a capturing piece joins in as soon as the piece has left (an x-ray attacker).
+// Pins are not looked at, a pinned attacker is counted like any other.
+// Each search thread has its own instance, the scratch array is reused by every call.
+class StaticExchange {
+    // indexed by piece type, the king is worth more than anything it could ever win
+    private static final int[] VALUES = { 100, 300, 300, 500, 900, 20000 };
+
+    // gain[i]: the material won by the side making the i-th capture if the exchange stopped after it
+    private final int[] gain = new int[32];
+
+    // the material the side making the move wins with it, negative if it loses material
+    int evaluate(Position position, int move) {
+        int from = Move.from(move), to = Move.to(move);
+        int captured = Move.captured(move);
+        gain[0] = captured == Position.NO_PIECE ? 0 : VALUES[Position.typeOf(captured)];
+        int onSquare = VALUES[Position.typeOf(Move.piece(move))]; // value of the piece that stands on the target
+        int promotion = Move.promotion(move);
+        if (promotion != 0) {
+            gain[0] += VALUES[promotion] - VALUES[Position.PAWN];
+            onSquare = VALUES[promotion];
+        }
+
+        long occupied = position.occupied() ^ (1L << from);
+        if (Move.flags(move) == Move.EN_PASSANT)
+            occupied ^= 1L << (to ^ 8);
+        int side = 1 - Position.colorOf(Move.piece(move));
+        int depth = 0;
+        while (true) {
+            long attackers = position.attackersTo(to, occupied) & occupied;
+            long ours = attackers & position.pieces(side);
+            if (ours == 0)
+                break;
+            int type = Position.PAWN;
+            while ((ours & position.pieces(side, type)) == 0)
+                type++;
+            // the king can only take when the other side has nothing left to take back
+            if (type == Position.KING && (attackers & position.pieces(1 - side)) != 0)
+                break;
+
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+            occupied ^= Long.lowestOneBit(ours & position.pieces(side, type));
+            onSquare = VALUES[type];
+            side = 1 - side;
+        }
+        // every side may stop the exchange when going on would lose
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+}
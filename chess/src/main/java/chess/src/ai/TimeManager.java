@@ -0,0 +1,67 @@
+package chess.src.ai;
+
+import chess.src.board.Position;
+
+// Decides how long the AI may think about a move.
+// The time is taken from the remaining clock: it is shared among the moves still expected in the game,
+// fewer once the pieces come off the board, and most of the increment is spent on top of that.
+// - soft limit: no new iteration of the iterative deepening is started after it, the next one would
+//   most likely take longer than all the previous ones together
+// - hard limit: the search is stopped, checked from inside the search every few thousand nodes
+// No limit applies to a search started with startUnlimited. The limits may be changed while a search
+// runs on another thread, when a ponder search becomes the real one.
+public class TimeManager {
+    // time kept back for the server and the network, never planned for
+    private static final long OVERHEAD_MILLIS = 50;
+
+    private volatile long start;
+    private volatile long softLimit;
+    private volatile long hardLimit;
+
+    public void start(long remainingMillis, long incrementMillis, long maxMoveMillis, Position position) {
+        start = System.nanoTime();
+        long available = Math.max(1, remainingMillis - OVERHEAD_MILLIS);
+        long target = available / movesToGo(position) + incrementMillis * 3 / 4;
+        target = Math.min(target, maxMoveMillis);
+        long hard = Math.min(Math.min(2 * target, maxMoveMillis), available / 3);
+        target = Math.min(target, hard);
+        softLimit = millisToNanos(target / 2);
+        hardLimit = millisToNanos(Math.max(1, hard));
+    }
+
+    public void startUnlimited() {
+        start = System.nanoTime();
+        softLimit = Long.MAX_VALUE;
+        hardLimit = Long.MAX_VALUE;
+    }
+
+    // a ponder search runs until it is stopped, but never longer than maxMillis
+    public void startPondering(long maxMillis) {
+        start = System.nanoTime();
+        softLimit = Long.MAX_VALUE;
+        hardLimit = millisToNanos(maxMillis);
+    }
+
+    public boolean canStartIteration() {
+        return System.nanoTime() - start < softLimit;
+    }
+
+    public boolean isTimeUp() {
+        return System.nanoTime() - start >= hardLimit;
+    }
+
+    // Moves the game is expected to last, from the material left on the board (the game phase):
+    // about 40 with all pieces on the board, down to 15 with only kings and pawns.
+    static int movesToGo(Position position) {
+        int phase = 0;
+        for (int color = 0; color < 2; color++) {
+            phase += position.pieceCount(color, Position.KNIGHT) + position.pieceCount(color, Position.BISHOP)
+                    + 2 * position.pieceCount(color, Position.ROOK) + 4 * position.pieceCount(color, Position.QUEEN);
+        }
+        return 15 + 25 * Math.min(phase, 24) / 24;
+    }
+
+    private static long millisToNanos(long millis) {
+        return millis * 1_000_000;
+    }
+}
@@ -0,0 +1,122 @@
+package chess.src.ai;
+
+import java.nio.ByteBuffer;
+
+// Remembers the result of every searched node by the Zobrist hash of its position, so a position
+// reached again (through another move order or in the next search) is not searched from scratch.
+//
+// The table lives in a direct buffer outside the Java heap and is read and written with plain
+// absolute long accesses. Each entry is two longs: the key xor'ed with the data, and the data.
+// An entry torn by two threads writing at the same time fails the xor check on the next probe
+// and is treated as a miss, so the table can be shared by search threads without locking.
+//
+// The entries are grouped in buckets of two. A new result goes to the slot of the same position
+// if there is one, otherwise it replaces the slot that is worth less: an entry of an older search
+// is worth less than any entry of the current search, and among those a shallower one.
+//
+// Data layout (64 bits):
+//   bits  0-25  best move (see Move), Move.NONE if there is none
+//   bits 26-33  depth
+//   bits 34-35  bound (EXACT, LOWER or UPPER), never 0 so that an entry is never 0
+//   bits 36-41  age, the search the entry was written in
+//   bits 42-63  score, signed
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2; // the score is at least the stored one (the search failed high)
+    public static final int UPPER = 3; // the score is at most the stored one (the search failed low)
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_BYTES = 2 * ENTRY_BYTES;
+
+    // the largest table, 1 GB: a direct buffer is indexed by int, so 2 GB would not fit
+    private static final int MAX_BUCKETS = (1 << 30) / BUCKET_BYTES;
+
+    private final ByteBuffer buffer;
+    private final long bucketMask;
+    private int age;
+
+    public TranspositionTable(int megabytes) {
+        int buckets = bucketCount(megabytes);
+        buffer = ByteBuffer.allocateDirect(buckets * BUCKET_BYTES);
+        bucketMask = buckets - 1;
+    }
+
+    // rounded down to a power of two number of buckets, at most MAX_BUCKETS
+    static int bucketCount(int megabytes) {
+        if (megabytes <= 0)
+            throw new IllegalArgumentException("Table size must be positive: " + megabytes + " MB");
+        long buckets = Long.highestOneBit((long) megabytes * (1 << 20) / BUCKET_BYTES);
+        return (int) Math.min(buckets, MAX_BUCKETS);
+    }
+
+    // Starts a new search: the entries written so far become old and are replaced first.
+    public void newSearch() {
+        age = (age + 1) & 63;
+    }
+
+    public void clear() {
+        for (int i = 0; i < buffer.capacity(); i += 8)
+            buffer.putLong(i, 0);
+        age = 0;
+    }
+
+    // the data stored for the position, 0 if there is none
+    public long probe(long key) {
+        int bucket = bucketOffset(key);
+        for (int slot = bucket; slot < bucket + BUCKET_BYTES; slot += ENTRY_BYTES) {
+            long data = buffer.getLong(slot + 8);
+            if ((buffer.getLong(slot) ^ data) == key)
+                return data;
+        }
+        return 0;
+    }
+
+    public void store(long key, int move, int depth, int bound, int score) {
+        int bucket = bucketOffset(key);
+        int target = bucket;
+        int targetWorth = Integer.MAX_VALUE;
+        for (int slot = bucket; slot < bucket + BUCKET_BYTES; slot += ENTRY_BYTES) {
+            long old = buffer.getLong(slot + 8);
+            if ((buffer.getLong(slot) ^ old) == key) {
+                // the same position: keep the old best move if the new result has none
+                if (move == 0)
+                    move = move(old);
+                target = slot;
+                break;
+            }
+            int worth = old == 0 ? -1 : (age(old) == age ? 256 : 0) + depth(old);
+            if (worth < targetWorth) {
+                targetWorth = worth;
+                target = slot;
+            }
+        }
+        long data = (move & 0x3FFFFFFL) | (long) (depth & 0xFF) << 26 | (long) bound << 34 | (long) age << 36
+                | (long) score << 42;
+        buffer.putLong(target + 8, data);
+        buffer.putLong(target, key ^ data);
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0x3FFFFFF);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 26) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 34) & 3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 36) & 63;
+    }
+
+    public static int score(long data) {
+        return (int) (data >> 42);
+    }
+
+    private int bucketOffset(long key) {
+        return (int) (key & bucketMask) * BUCKET_BYTES;
+    }
+}
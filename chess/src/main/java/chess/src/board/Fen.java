@@ -0,0 +1,105 @@
+package chess.src.board;
+
+// Reads and writes positions in Forsyth-Edwards Notation, e.g. the start position
+// "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1":
+// placement from the 8th row down, side to move, castling rights, en passant square,
+// halfmove clock and fullmove number. The last four fields may be left out.
+public class Fen {
+    private static final String PIECE_SYMBOLS = "PNBRQKpnbrqk"; // indexed by piece code
+    private static final String CASTLING_SYMBOLS = "KQkq"; // indexed by the bit of the right
+
+    private Fen() {
+    }
+
+    // Sets up the position described by the FEN, replacing whatever it held before.
+    public static void parse(String fen, Position position) {
+        String[] parts = fen.trim().split("\\s+");
+        String[] rows = parts[0].split("/");
+        if (rows.length != 8)
+            throw new IllegalArgumentException("Invalid FEN, 8 rows expected: " + fen);
+
+        position.clear();
+        for (int j = 0; j < 8; j++) { // j = FEN row index (0 = rank 8, 7 = rank 1)
+            int row = 7 - j;
+            int column = 0;
+            for (char c : rows[j].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    column += c - '0';
+                    continue;
+                }
+                int piece = PIECE_SYMBOLS.indexOf(c);
+                if (piece < 0 || column > 7)
+                    throw new IllegalArgumentException("Invalid FEN, bad row " + rows[j] + ": " + fen);
+                if (position.pieceCount(Position.colorOf(piece)) == 16)
+                    throw new IllegalArgumentException("Invalid FEN, more than 16 pieces of a color: " + fen);
+                position.putPiece(piece, Position.squareIndex(column++, row));
+            }
+            if (column != 8)
+                throw new IllegalArgumentException("Invalid FEN, bad row " + rows[j] + ": " + fen);
+        }
+
+        position.setSideToMove(parts.length > 1 && parts[1].equals("b") ? ChessBoard.BLACK : ChessBoard.WHITE);
+        if (parts.length > 2 && !parts[2].equals("-")) {
+            int rights = 0;
+            for (char c : parts[2].toCharArray()) {
+                int right = CASTLING_SYMBOLS.indexOf(c);
+                if (right < 0)
+                    throw new IllegalArgumentException("Invalid FEN, bad castling rights " + parts[2] + ": " + fen);
+                rights |= 1 << right;
+            }
+            position.setCastlingRights(rights);
+        }
+        if (parts.length > 3 && !parts[3].equals("-")) {
+            try {
+                position.setEnPassantIfCapturable(ChessBoard.parseSquare(parts[3]));
+            } catch (InvalidLocationException e) {
+                throw new IllegalArgumentException("Invalid FEN, bad en passant square " + parts[3] + ": " + fen);
+            }
+        }
+        try {
+            if (parts.length > 4)
+                position.setHalfmoveClock(Integer.parseInt(parts[4]));
+            if (parts.length > 5)
+                position.setFullmoveNumber(Integer.parseInt(parts[5]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid FEN, bad move counters: " + fen);
+        }
+    }
+
+    // The complete FEN of the position, all six fields.
+    public static String write(Position position) {
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                int piece = position.pieceAt(Position.squareIndex(column, row));
+                if (piece == Position.NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0)
+                    fen.append(empty);
+                empty = 0;
+                fen.append(PIECE_SYMBOLS.charAt(piece));
+            }
+            if (empty > 0)
+                fen.append(empty);
+            if (row > 0)
+                fen.append('/');
+        }
+
+        fen.append(position.getSideToMove() == ChessBoard.WHITE ? " w " : " b ");
+        int rights = position.getCastlingRights();
+        if (rights == 0)
+            fen.append('-');
+        for (int right = 0; right < 4; right++)
+            if ((rights & (1 << right)) != 0)
+                fen.append(CASTLING_SYMBOLS.charAt(right));
+        fen.append(' ');
+        int enPassant = position.getEnPassantSquare();
+        fen.append(enPassant < 0 ? "-" : Move.squareSymbol(enPassant));
+        fen.append(' ').append(position.getHalfmoveClock());
+        fen.append(' ').append(position.getFullmoveNumber());
+        return fen.toString();
+    }
+}
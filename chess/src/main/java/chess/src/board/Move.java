@@ -0,0 +1,64 @@
+package chess.src.board;
+
+// Moves are encoded into a single int so that the search does not allocate an object per move.
+// bits  0-5:  source square
+// bits  6-11: target square
+// bits 12-14: promotion piece type (0 if none, a pawn never promotes to a pawn)
+// bits 15-18: moving piece code (see Position)
+// bits 19-22: captured piece code, Position.NO_PIECE if the target is empty
+// bits 23-25: flags
+public class Move {
+    public static final int NONE = 0; // A1 to A1 is never a valid move
+
+    // flags
+    public static final int DOUBLE_PUSH = 1;
+    public static final int CASTLING = 2; // a king move of two squares, the rook is moved by makeMove
+    public static final int EN_PASSANT = 3; // the captured pawn stands behind the target square
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, int piece, int captured, int promotion, int flags) {
+        return from | to << 6 | promotion << 12 | piece << 15 | captured << 19 | flags << 23;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 15) & 15;
+    }
+
+    public static int captured(int move) {
+        return (move >>> 19) & 15;
+    }
+
+    public static int flags(int move) {
+        return (move >>> 23) & 7;
+    }
+
+    public static boolean isCapture(int move) {
+        return captured(move) != Position.NO_PIECE;
+    }
+
+    public static String squareSymbol(int square) {
+        return (char) ('a' + (square & 7)) + String.valueOf((square >> 3) + 1);
+    }
+
+    // long algebraic notation, e.g. "e2e4" or "e7e8q"
+    public static String toString(int move) {
+        String s = squareSymbol(from(move)) + squareSymbol(to(move));
+        if (promotion(move) != 0)
+            s += "pnbrqk".charAt(promotion(move));
+        return s;
+    }
+}
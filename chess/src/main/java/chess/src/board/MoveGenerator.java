@@ -0,0 +1,154 @@
+package chess.src.board;
+
+// Generates moves into a caller-supplied int buffer, see Move for the encoding.
+// Only the targets each piece can actually reach are visited, using the tables of the piece classes.
+// Legal moves are produced directly from the checkers and pinned pieces of the position,
+// no move is played to find out whether it leaves the king in check.
+public class MoveGenerator {
+    // no chess position has more than 218 legal moves
+    public static final int MAX_MOVES = 256;
+
+    private MoveGenerator() {
+    }
+
+    // Fills the buffer with the legal moves of the color and returns the number of moves.
+    // The checkers and pinned pieces are computed once for the whole position.
+    public static int generateLegal(Position position, int color, int[] moves) {
+        long checkers = position.checkers(color);
+        long pinned = position.pinned(color);
+        int count = 0;
+        for (long own = position.pieces(color); own != 0; own &= own - 1) {
+            int from = Long.numberOfTrailingZeros(own);
+            count = addMoves(position, color, from, legalTargets(position, from, checkers, pinned), moves, count);
+        }
+        return count;
+    }
+
+    // Fills the buffer with the legal captures (en passant included) and promotions of the color.
+    // A search tries these first, the quiet moves are often not needed at all.
+    public static int generateCaptures(Position position, int color, int[] moves) {
+        return generate(position, color, moves, true);
+    }
+
+    // Fills the buffer with the legal moves that generateCaptures leaves out.
+    public static int generateQuiets(Position position, int color, int[] moves) {
+        return generate(position, color, moves, false);
+    }
+
+    private static int generate(Position position, int color, int[] moves, boolean captures) {
+        long checkers = position.checkers(color);
+        long pinned = position.pinned(color);
+        long enemies = position.pieces(1 - color);
+        int enPassant = position.getEnPassantSquare();
+        long pawnCaptures = enemies | (enPassant >= 0 ? 1L << enPassant : 0);
+        int promotionRow = color == ChessBoard.WHITE ? 6 : 1;
+        int count = 0;
+        for (long own = position.pieces(color); own != 0; own &= own - 1) {
+            int from = Long.numberOfTrailingZeros(own);
+            long targets = legalTargets(position, from, checkers, pinned);
+            long noisy = enemies;
+            if (Position.typeOf(position.pieceAt(from)) == Position.PAWN)
+                noisy = (from >> 3) == promotionRow ? -1L : pawnCaptures; // every move to the last row promotes
+            count = addMoves(position, color, from, targets & (captures ? noisy : ~noisy), moves, count);
+        }
+        return count;
+    }
+
+    // stops at the first legal move instead of generating them all
+    public static boolean hasLegalMove(Position position, int color) {
+        long checkers = position.checkers(color);
+        long pinned = position.pinned(color);
+        for (long own = position.pieces(color); own != 0; own &= own - 1) {
+            if (legalTargets(position, Long.numberOfTrailingZeros(own), checkers, pinned) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    // Targets of the piece on 'from' that do not leave its king in check.
+    // - the king may go to any target that is not attacked once the king itself has left its square,
+    //   it castles only when it is not in check and the square it passes is not attacked either
+    // - in double check only the king can move
+    // - in single check the other pieces must capture the checker or block between it and the king
+    // - a pinned piece must stay on the line through its king and the pinning piece
+    // - en passant removes two pawns from a row at once, so it is checked on the occupancy after the capture
+    public static long legalTargets(Position position, int from, long checkers, long pinned) {
+        int piece = position.pieceAt(from);
+        if (piece == Position.NO_PIECE)
+            return 0;
+        int color = Position.colorOf(piece);
+        int king = position.kingSquare(color);
+        long targets = position.targets(from);
+        if (king < 0)
+            return targets;
+
+        if (from == king) {
+            long legal = 0;
+            long occupiedWithoutKing = position.occupied() ^ (1L << king);
+            long enemies = position.pieces(1 - color);
+            for (long t = targets; t != 0; t &= t - 1) {
+                int to = Long.numberOfTrailingZeros(t);
+                if ((position.attackersTo(to, occupiedWithoutKing) & enemies) != 0)
+                    continue;
+                if (Math.abs(to - from) == 2 && (checkers != 0
+                        || (position.attackersTo((from + to) >> 1, occupiedWithoutKing) & enemies) != 0))
+                    continue;
+                legal |= 1L << to;
+            }
+            return legal;
+        }
+        long enPassant = 0;
+        if (Position.typeOf(piece) == Position.PAWN && position.getEnPassantSquare() >= 0) {
+            enPassant = targets & (1L << position.getEnPassantSquare());
+            targets ^= enPassant;
+        }
+        if (enPassant != 0 && !isEnPassantLegal(position, from, position.getEnPassantSquare(), king))
+            enPassant = 0;
+        if (checkers != 0) {
+            if ((checkers & (checkers - 1)) != 0)
+                return 0;
+            targets &= checkers | Position.between(king, Long.numberOfTrailingZeros(checkers));
+        }
+        if ((pinned & (1L << from)) != 0)
+            targets &= Position.line(king, from);
+        return targets | enPassant;
+    }
+
+    // plays the en passant capture on the occupancy only and looks for attackers of the king
+    private static boolean isEnPassantLegal(Position position, int from, int to, int king) {
+        int captured = to ^ 8;
+        long occupied = (position.occupied() ^ (1L << from) ^ (1L << captured)) | (1L << to);
+        int color = Position.colorOf(position.pieceAt(from));
+        long enemies = position.pieces(1 - color) ^ (1L << captured);
+        return (position.attackersTo(king, occupied) & enemies) == 0;
+    }
+
+    private static int addMoves(Position position, int color, int from, long targets, int[] moves, int count) {
+        int piece = position.pieceAt(from);
+        if (Position.typeOf(piece) != Position.PAWN) {
+            boolean king = Position.typeOf(piece) == Position.KING;
+            for (; targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets);
+                int flags = king && Math.abs(to - from) == 2 ? Move.CASTLING : 0;
+                moves[count++] = Move.of(from, to, piece, position.pieceAt(to), 0, flags);
+            }
+            return count;
+        }
+        boolean promotes = (from >> 3) == (color == ChessBoard.WHITE ? 6 : 1);
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int captured = position.pieceAt(to);
+            if (promotes) {
+                moves[count++] = Move.of(from, to, piece, captured, Position.QUEEN, 0);
+                moves[count++] = Move.of(from, to, piece, captured, Position.KNIGHT, 0);
+                moves[count++] = Move.of(from, to, piece, captured, Position.ROOK, 0);
+                moves[count++] = Move.of(from, to, piece, captured, Position.BISHOP, 0);
+            } else if (to == position.getEnPassantSquare()) {
+                moves[count++] = Move.of(from, to, piece, position.pieceAt(to ^ 8), 0, Move.EN_PASSANT);
+            } else {
+                moves[count++] = Move.of(from, to, piece, captured, 0, Math.abs(to - from) == 16 ? Move.DOUBLE_PUSH : 0);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,152 @@
+package chess.src.board;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Counts the leaf nodes of the legal move tree to a fixed depth (perft).
+// The counts of well known positions are published, so any difference points to a move generation bug,
+// and the time taken measures the raw speed of move generation and make/unmake.
+//
+// Usage: Perft "<fen>" <depth> [--divide] [--parallel] [--hash <MB>]
+//   --divide    prints the count below every root move
+//   --parallel  searches the root moves on a fork-join pool, each task on its own copy of the position
+//   --hash      caches the counts of subtrees that are reached again through another move order
+public class Perft {
+    private final boolean parallel;
+    private final PerftHash hash;
+
+    public Perft(boolean parallel, int hashMegabytes) {
+        this.parallel = parallel;
+        this.hash = hashMegabytes > 0 ? new PerftHash(hashMegabytes) : null;
+    }
+
+    public Perft() {
+        this(false, 0);
+    }
+
+    public long perft(Position position, int depth) {
+        long nodes = 0;
+        for (long count : divide(position, depth).values())
+            nodes += count;
+        return depth == 0 ? 1 : nodes;
+    }
+
+    // node count below every legal root move, in generation order
+    public Map<String, Long> divide(Position position, int depth) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (depth == 0)
+            return result;
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(position, position.getSideToMove(), rootMoves);
+
+        if (parallel) {
+            RootTask[] tasks = new RootTask[count];
+            for (int i = 0; i < count; i++) {
+                tasks[i] = new RootTask(position, rootMoves[i], depth - 1);
+                tasks[i].fork();
+            }
+            for (int i = 0; i < count; i++)
+                result.put(Move.toString(rootMoves[i]), tasks[i].join());
+        } else {
+            int[][] buffers = new int[depth][MoveGenerator.MAX_MOVES];
+            for (int i = 0; i < count; i++) {
+                position.makeMove(rootMoves[i]);
+                result.put(Move.toString(rootMoves[i]), count(position, depth - 1, buffers));
+                position.unmakeMove();
+            }
+        }
+        return result;
+    }
+
+    private long count(Position position, int depth, int[][] buffers) {
+        if (depth == 0)
+            return 1;
+        int[] moves = buffers[depth - 1];
+        int count = MoveGenerator.generateLegal(position, position.getSideToMove(), moves);
+        if (depth == 1)
+            return count; // the legal moves are the leaves, no need to play them
+
+        long key = 0;
+        if (hash != null) {
+            key = position.hash();
+            long cached = hash.get(key, depth);
+            if (cached >= 0)
+                return cached;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += count(position, depth - 1, buffers);
+            position.unmakeMove();
+        }
+        if (hash != null)
+            hash.put(key, depth, nodes);
+        return nodes;
+    }
+
+    // counts the subtree of one root move on a private copy of the position
+    private class RootTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Position position;
+        private final int depth;
+
+        RootTask(Position root, int move, int depth) {
+            this.position = new Position(root);
+            this.position.makeMove(move);
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            return count(position, depth, new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES]);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: Perft \"<fen>\" <depth> [--divide] [--parallel] [--hash <MB>]");
+            return;
+        }
+        String fen = args[0];
+        int depth = Integer.parseInt(args[1]);
+        boolean divide = false, parallel = false;
+        int hashMegabytes = 0;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--parallel":
+                    parallel = true;
+                    break;
+                case "--hash":
+                    hashMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        Perft perft = new Perft(parallel, hashMegabytes);
+        Position position = new ChessBoard(fen).getPosition();
+        long start = System.nanoTime();
+        Map<String, Long> counts = perft.divide(position, depth);
+        long elapsed = System.nanoTime() - start;
+
+        long nodes = depth == 0 ? 1 : 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (divide)
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+            nodes += entry.getValue();
+        }
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Time: " + elapsed / 1_000_000 + " ms");
+        System.out.println("Nodes/second: " + (elapsed == 0 ? 0 : nodes * 1_000_000_000L / elapsed));
+        if (parallel)
+            System.out.println("Threads: " + ForkJoinPool.commonPool().getParallelism());
+    }
+}
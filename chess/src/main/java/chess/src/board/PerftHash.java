@@ -0,0 +1,35 @@
+package chess.src.board;
+
+// Fixed-size cache of perft subtree counts, shared by the threads of a parallel perft.
+// Each slot holds two longs: the data (count and depth) and the key xor'ed with the data.
+// A slot torn by two threads writing at once fails the xor check and is treated as a miss,
+// so no locking is needed.
+class PerftHash {
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    PerftHash(int megabytes) {
+        // 16 bytes per slot, rounded down to a power of two, at most 1 GB
+        int slots = (int) Math.min(Long.highestOneBit(Math.max(1, (long) megabytes * (1 << 20) / 16)), (1 << 30) / 16);
+        keys = new long[slots];
+        data = new long[slots];
+        mask = slots - 1;
+    }
+
+    // the count stored for the position at this depth, -1 if there is none
+    long get(long key, int depth) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) == key && (entry & 0xFF) == depth)
+            return entry >>> 8;
+        return -1;
+    }
+
+    void put(long key, int depth, long nodes) {
+        int index = (int) key & mask;
+        long entry = nodes << 8 | depth;
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+}
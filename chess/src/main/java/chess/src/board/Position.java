@@ -0,0 +1,644 @@
+package chess.src.board;
+
+import java.util.Arrays;
+
+import chess.src.piece.Bishop;
+import chess.src.piece.King;
+import chess.src.piece.Knight;
+import chess.src.piece.Pawn;
+import chess.src.piece.Queen;
+import chess.src.piece.Rook;
+
+// Bitboard representation of a chess position.
+// Every piece type of every color has its own 64-bit occupancy, bit n being set
+// when that piece stands on square n. Squares are numbered row by row starting
+// from A1, so A1 = 0, H1 = 7, A2 = 8 ... H8 = 63 (index = row * 8 + column).
+// A mailbox array is kept next to the bitboards to answer "what is on this square"
+// without scanning all twelve bitboards.
+public class Position {
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    // piece codes are color * 6 + type, so 0..5 are white pieces and 6..11 are black pieces.
+    public static final int NO_PIECE = 12;
+
+    // castling rights, combined into a 4-bit mask
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    // size of the undo stack, deeper than any search plus the moves of a long game
+    public static final int MAX_PLY = 1024;
+
+    // the rights kept after a move from or to the square: moving a king or a rook,
+    // or capturing a rook, loses the rights of that king or rook
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[0] = ~WHITE_QUEENSIDE & 15;
+        CASTLING_MASK[4] = ~(WHITE_KINGSIDE | WHITE_QUEENSIDE) & 15;
+        CASTLING_MASK[7] = ~WHITE_KINGSIDE & 15;
+        CASTLING_MASK[56] = ~BLACK_QUEENSIDE & 15;
+        CASTLING_MASK[60] = ~(BLACK_KINGSIDE | BLACK_QUEENSIDE) & 15;
+        CASTLING_MASK[63] = ~BLACK_KINGSIDE & 15;
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private long occupied;
+    private final int[] mailbox = new int[64];
+    private int sideToMove = ChessBoard.WHITE;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private int castlingRights;
+    // square a pawn of the side to move can capture en passant on, -1 if none.
+    // It is only set when such a capture exists, so that equal positions have equal hashes.
+    private int enPassantSquare = -1;
+    // Zobrist hash, updated by every method that changes a feature of the position (see Zobrist)
+    private long hash;
+
+    // per-color piece lists: the squares of the pieces of each color in no particular order.
+    // listIndex gives the position of a square inside its list so that removal is O(1).
+    private final int[][] pieceList = new int[2][16];
+    private final int[] pieceListSize = new int[2];
+    private final int[] listIndex = new int[64];
+    // number of pieces on the board per piece code and cached king squares, updated by putPiece/removePiece
+    private final int[] pieceCount = new int[12];
+    private final int[] kingSquare = { -1, -1 };
+
+    // undo stack: one entry per move made with makeMove, popped by unmakeMove.
+    // The moved and captured pieces are part of the move itself, only the clock and the rights have to be saved.
+    private final int[] undoMove = new int[MAX_PLY];
+    private final int[] undoHalfmoveClock = new int[MAX_PLY];
+    private final int[] undoCastlingRights = new int[MAX_PLY];
+    private final int[] undoEnPassant = new int[MAX_PLY];
+    // hash of the position before each move, scanned for repetitions
+    private final long[] undoHash = new long[MAX_PLY];
+    private int ply;
+
+    public Position() {
+        for (int i = 0; i < 64; i++)
+            mailbox[i] = NO_PIECE;
+    }
+
+    public Position(Position original) {
+        System.arraycopy(original.pieces, 0, this.pieces, 0, 12);
+        System.arraycopy(original.colors, 0, this.colors, 0, 2);
+        System.arraycopy(original.mailbox, 0, this.mailbox, 0, 64);
+        this.occupied = original.occupied;
+        System.arraycopy(original.pieceList[0], 0, this.pieceList[0], 0, 16);
+        System.arraycopy(original.pieceList[1], 0, this.pieceList[1], 0, 16);
+        System.arraycopy(original.pieceListSize, 0, this.pieceListSize, 0, 2);
+        System.arraycopy(original.listIndex, 0, this.listIndex, 0, 64);
+        System.arraycopy(original.pieceCount, 0, this.pieceCount, 0, 12);
+        System.arraycopy(original.kingSquare, 0, this.kingSquare, 0, 2);
+        this.sideToMove = original.sideToMove;
+        this.halfmoveClock = original.halfmoveClock;
+        this.fullmoveNumber = original.fullmoveNumber;
+        this.castlingRights = original.castlingRights;
+        this.enPassantSquare = original.enPassantSquare;
+        this.hash = original.hash;
+        this.ply = original.ply;
+        System.arraycopy(original.undoMove, 0, this.undoMove, 0, ply);
+        System.arraycopy(original.undoHalfmoveClock, 0, this.undoHalfmoveClock, 0, ply);
+        System.arraycopy(original.undoCastlingRights, 0, this.undoCastlingRights, 0, ply);
+        System.arraycopy(original.undoEnPassant, 0, this.undoEnPassant, 0, ply);
+        System.arraycopy(original.undoHash, 0, this.undoHash, 0, ply);
+    }
+
+    // empties the board and resets the state and the undo stack, as after new Position()
+    public void clear() {
+        Arrays.fill(pieces, 0);
+        Arrays.fill(colors, 0);
+        occupied = 0;
+        Arrays.fill(mailbox, NO_PIECE);
+        pieceListSize[0] = pieceListSize[1] = 0;
+        Arrays.fill(pieceCount, 0);
+        kingSquare[0] = kingSquare[1] = -1;
+        sideToMove = ChessBoard.WHITE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        castlingRights = 0;
+        enPassantSquare = -1;
+        hash = 0;
+        ply = 0;
+    }
+
+    public static int makePiece(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int colorOf(int piece) {
+        return piece / 6;
+    }
+
+    public static int typeOf(int piece) {
+        return piece % 6;
+    }
+
+    public static int squareIndex(int column, int row) {
+        return row * 8 + column;
+    }
+
+    // puts the piece on an empty square
+    public void putPiece(int piece, int square) {
+        int color = colorOf(piece);
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        colors[color] |= bit;
+        occupied |= bit;
+        mailbox[square] = piece;
+        hash ^= Zobrist.piece(piece, square);
+
+        listIndex[square] = pieceListSize[color];
+        pieceList[color][pieceListSize[color]++] = square;
+        pieceCount[piece]++;
+        if (typeOf(piece) == KING)
+            kingSquare[color] = square;
+    }
+
+    // removes the piece on the square (if any) and returns it
+    public int removePiece(int square) {
+        int piece = mailbox[square];
+        if (piece == NO_PIECE)
+            return NO_PIECE;
+        long bit = ~(1L << square);
+        pieces[piece] &= bit;
+        colors[colorOf(piece)] &= bit;
+        occupied &= bit;
+        mailbox[square] = NO_PIECE;
+        hash ^= Zobrist.piece(piece, square);
+
+        // the last square of the list takes the place of the removed one
+        int color = colorOf(piece);
+        int last = pieceList[color][--pieceListSize[color]];
+        pieceList[color][listIndex[square]] = last;
+        listIndex[last] = listIndex[square];
+        pieceCount[piece]--;
+        if (typeOf(piece) == KING)
+            kingSquare[color] = -1;
+        return piece;
+    }
+
+    // Moves a piece to an empty square. The piece keeps its slot in the piece list, so the order
+    // of the list of the moving side is the same after makeMove and unmakeMove.
+    private void movePiece(int from, int to) {
+        int piece = mailbox[from];
+        long fromTo = (1L << from) | (1L << to);
+        pieces[piece] ^= fromTo;
+        colors[colorOf(piece)] ^= fromTo;
+        occupied ^= fromTo;
+        mailbox[from] = NO_PIECE;
+        mailbox[to] = piece;
+        hash ^= Zobrist.piece(piece, from) ^ Zobrist.piece(piece, to);
+
+        pieceList[colorOf(piece)][listIndex[from]] = to;
+        listIndex[to] = listIndex[from];
+        if (typeOf(piece) == KING)
+            kingSquare[colorOf(piece)] = to;
+    }
+
+    // changes the piece on the square to another piece of the same color (promotions)
+    private void replacePiece(int square, int piece) {
+        int old = mailbox[square];
+        long bit = 1L << square;
+        pieces[old] ^= bit;
+        pieces[piece] ^= bit;
+        mailbox[square] = piece;
+        hash ^= Zobrist.piece(old, square) ^ Zobrist.piece(piece, square);
+        pieceCount[old]--;
+        pieceCount[piece]++;
+    }
+
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[makePiece(color, type)];
+    }
+
+    public long pieces(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    // squares of the pieces of the color, only the first pieceCount(color) entries are valid
+    public int[] pieceList(int color) {
+        return pieceList[color];
+    }
+
+    public int pieceCount(int color) {
+        return pieceListSize[color];
+    }
+
+    public int pieceCount(int color, int type) {
+        return pieceCount[makePiece(color, type)];
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(int color) {
+        if (color != sideToMove)
+            nextPlayer();
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public void setCastlingRights(int rights) {
+        hash ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+        castlingRights = rights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public void setEnPassantSquare(int square) {
+        if (enPassantSquare >= 0)
+            hash ^= Zobrist.enPassant(enPassantSquare & 7);
+        if (square >= 0)
+            hash ^= Zobrist.enPassant(square & 7);
+        enPassantSquare = square;
+    }
+
+    // Sets the square behind a pawn that has just moved two squares, if a pawn of the
+    // side to move stands next to it and could capture it en passant.
+    public void setEnPassantIfCapturable(int square) {
+        int us = sideToMove;
+        setEnPassantSquare((Pawn.attacks(1 - us, square) & pieces(us, PAWN)) != 0 ? square : -1);
+    }
+
+    // number of moves on the undo stack
+    public int getPly() {
+        return ply;
+    }
+
+    // the move that led to this position, Move.NONE if there is none on the undo stack
+    public int lastMove() {
+        return ply > 0 ? undoMove[ply - 1] : Move.NONE;
+    }
+
+    public void nextPlayer() {
+        sideToMove = (ChessBoard.WHITE + ChessBoard.BLACK) - sideToMove;
+        hash ^= Zobrist.BLACK_TO_MOVE;
+    }
+
+    // 64-bit Zobrist hash of the placement, the side to move, the castling rights and the en passant file
+    // (only when a capture en passant is possible). Equal positions have equal hashes, different
+    // positions collide only by chance.
+    public long hash() {
+        return hash;
+    }
+
+    public int kingSquare(int color) {
+        return kingSquare[color];
+    }
+
+    public boolean isInCheck(int color) {
+        int king = kingSquare(color);
+        return king >= 0 && isSquareAttacked(king, 1 - color);
+    }
+
+    // Checks if a square is attacked by a piece of the specified color.
+    public boolean isSquareAttacked(int square, int byColor) {
+        return (attackersTo(square, occupied) & colors[byColor]) != 0;
+    }
+
+    // Every piece of both colors attacking the square with the given occupancy.
+    // Instead of asking every piece whether it reaches the square, the attacks of each piece type
+    // are generated from the square itself and intersected with the pieces of that type:
+    // a knight on the square would attack exactly the squares the knights attacking it stand on.
+    public long attackersTo(int square, long occupied) {
+        long rooksQueens = pieces[ROOK] | pieces[QUEEN] | pieces[ROOK + 6] | pieces[QUEEN + 6];
+        long bishopsQueens = pieces[BISHOP] | pieces[QUEEN] | pieces[BISHOP + 6] | pieces[QUEEN + 6];
+        return (Pawn.attacks(ChessBoard.BLACK, square) & pieces[PAWN])
+                | (Pawn.attacks(ChessBoard.WHITE, square) & pieces[PAWN + 6])
+                | (Knight.attacks(square) & (pieces[KNIGHT] | pieces[KNIGHT + 6]))
+                | (King.attacks(square) & (pieces[KING] | pieces[KING + 6]))
+                | (Rook.attacks(square, occupied) & rooksQueens)
+                | (Bishop.attacks(square, occupied) & bishopsQueens);
+    }
+
+    // enemy pieces giving check to the king of the color
+    public long checkers(int color) {
+        int king = kingSquare[color];
+        return king < 0 ? 0 : attackersTo(king, occupied) & colors[1 - color];
+    }
+
+    // Pieces of the color that cannot leave the line between their king and an enemy slider
+    // without exposing the king. The pinned piece may be of any type, only sliders can pin.
+    public long pinned(int color) {
+        int king = kingSquare[color];
+        if (king < 0)
+            return 0;
+        int them = 1 - color;
+        long snipers = (Rook.attacks(king, 0) & (pieces(them, ROOK) | pieces(them, QUEEN)))
+                | (Bishop.attacks(king, 0) & (pieces(them, BISHOP) | pieces(them, QUEEN)));
+        long pinned = 0;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = between(king, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0)
+                pinned |= blockers & colors[color];
+        }
+        return pinned;
+    }
+
+    // Squares strictly between two squares on the same row, column or diagonal, 0 otherwise.
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    // The whole line (edge to edge) through two aligned squares, 0 if they are not aligned.
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    // between and line masks of all 4096 square pairs, looked up by pin detection and check evasion
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long bitA = 1L << a, bitB = 1L << b;
+                // the rays of each square are cut by the other square, the overlap lies between them
+                if ((Rook.attacks(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = Rook.attacks(a, bitB) & Rook.attacks(b, bitA);
+                    LINE[a][b] = (Rook.attacks(a, 0) & Rook.attacks(b, 0)) | bitA | bitB;
+                } else if ((Bishop.attacks(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = Bishop.attacks(a, bitB) & Bishop.attacks(b, bitA);
+                    LINE[a][b] = (Bishop.attacks(a, 0) & Bishop.attacks(b, 0)) | bitA | bitB;
+                }
+            }
+        }
+    }
+
+    // squares attacked by a piece standing on the square, looked up in the tables of the piece classes
+    public static long attacksFrom(int piece, int square, long occupied) {
+        switch (typeOf(piece)) {
+            case PAWN:
+                return Pawn.attacks(colorOf(piece), square);
+            case KNIGHT:
+                return Knight.attacks(square);
+            case BISHOP:
+                return Bishop.attacks(square, occupied);
+            case ROOK:
+                return Rook.attacks(square, occupied);
+            case QUEEN:
+                return Queen.attacks(square, occupied);
+            default:
+                return King.attacks(square);
+        }
+    }
+
+    // Every square the piece on 'from' may move to according to the piece's movement rules.
+    // The moves may still leave the own king in check.
+    public long targets(int from) {
+        int piece = mailbox[from];
+        if (piece == NO_PIECE)
+            return 0;
+        int color = colorOf(piece);
+        if (typeOf(piece) == PAWN)
+            return Pawn.targets(color, from, this);
+        if (typeOf(piece) == KING)
+            return (King.attacks(from) & ~colors[color]) | King.castlingTargets(color, from, this);
+        return attacksFrom(piece, from, occupied) & ~colors[color];
+    }
+
+    // Creates the move from 'from' to 'to'. Pawns reaching the last row are promoted to queens.
+    public int createMove(int from, int to) {
+        return createMove(from, to, 0);
+    }
+
+    // Creates the fully encoded move from 'from' to 'to' on this position.
+    // A pawn reaching the last row without a promotion piece is promoted to a queen.
+    public int createMove(int from, int to, int promotion) {
+        int piece = mailbox[from];
+        int captured = mailbox[to];
+        int flags = 0;
+        if (typeOf(piece) == PAWN) {
+            int row = to >> 3;
+            if (promotion == 0 && (row == 0 || row == 7))
+                promotion = QUEEN;
+            if (Math.abs(to - from) == 16)
+                flags = Move.DOUBLE_PUSH;
+            else if (to == enPassantSquare && ((to - from) & 7) != 0) {
+                flags = Move.EN_PASSANT;
+                captured = mailbox[to ^ 8];
+            }
+        } else if (typeOf(piece) == KING && Math.abs(to - from) == 2) {
+            flags = Move.CASTLING;
+        }
+        return Move.of(from, to, piece, captured, promotion, flags);
+    }
+
+    // Plays the move in place without any validation and pushes what is needed to take it back.
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = Move.piece(move);
+        int captured = Move.captured(move);
+        int flags = Move.flags(move);
+        if (ply == MAX_PLY)
+            dropOldestHistory();
+        undoHash[ply] = hash;
+
+        if (flags == Move.EN_PASSANT)
+            removePiece(to ^ 8); // the square behind the target, on the row of the moving pawn
+        else if (captured != NO_PIECE)
+            removePiece(to);
+        movePiece(from, to);
+        int promotion = Move.promotion(move);
+        if (promotion != 0)
+            replacePiece(to, makePiece(colorOf(piece), promotion));
+        if (flags == Move.CASTLING)
+            movePiece(castlingRookFrom(to), (from + to) >> 1);
+
+        undoMove[ply] = move;
+        undoHalfmoveClock[ply] = halfmoveClock;
+        undoCastlingRights[ply] = castlingRights;
+        undoEnPassant[ply] = enPassantSquare;
+        ply++;
+
+        halfmoveClock = (typeOf(piece) == PAWN || captured != NO_PIECE) ? 0 : halfmoveClock + 1;
+        if (sideToMove == ChessBoard.BLACK)
+            fullmoveNumber++;
+        if ((castlingRights & ~(CASTLING_MASK[from] & CASTLING_MASK[to])) != 0)
+            setCastlingRights(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+        nextPlayer();
+        if (flags == Move.DOUBLE_PUSH)
+            setEnPassantIfCapturable((from + to) >> 1);
+        else if (enPassantSquare >= 0)
+            setEnPassantSquare(-1);
+        // debug mode: with assertions enabled (-ea) the incremental hash is checked after every move
+        assert hash == Zobrist.compute(this) : "incremental hash differs after " + Move.toString(move);
+    }
+
+    // Takes back the last move made with makeMove.
+    public void unmakeMove() {
+        ply--;
+        int move = undoMove[ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
+
+        nextPlayer();
+        if (sideToMove == ChessBoard.BLACK)
+            fullmoveNumber--;
+        halfmoveClock = undoHalfmoveClock[ply];
+        setCastlingRights(undoCastlingRights[ply]);
+        setEnPassantSquare(undoEnPassant[ply]);
+
+        if (Move.flags(move) == Move.CASTLING)
+            movePiece((from + to) >> 1, castlingRookFrom(to));
+        if (Move.promotion(move) != 0)
+            replacePiece(to, Move.piece(move));
+        movePiece(to, from);
+        if (Move.flags(move) == Move.EN_PASSANT)
+            putPiece(Move.captured(move), to ^ 8);
+        else if (Move.isCapture(move))
+            putPiece(Move.captured(move), to);
+        assert hash == Zobrist.compute(this) : "incremental hash differs after taking back " + Move.toString(move);
+    }
+
+    // Passes the turn to the other side without moving, for the null move pruning of the search.
+    // Never legal in a game and never to be made while in check. The halfmove clock restarts, so
+    // no repetition is found across the null move.
+    public void makeNullMove() {
+        if (ply == MAX_PLY)
+            dropOldestHistory();
+        undoHash[ply] = hash;
+        undoMove[ply] = Move.NONE;
+        undoHalfmoveClock[ply] = halfmoveClock;
+        undoCastlingRights[ply] = castlingRights;
+        undoEnPassant[ply] = enPassantSquare;
+        ply++;
+
+        halfmoveClock = 0;
+        if (sideToMove == ChessBoard.BLACK)
+            fullmoveNumber++;
+        nextPlayer();
+        if (enPassantSquare >= 0)
+            setEnPassantSquare(-1);
+    }
+
+    public void unmakeNullMove() {
+        ply--;
+        nextPlayer();
+        if (sideToMove == ChessBoard.BLACK)
+            fullmoveNumber--;
+        halfmoveClock = undoHalfmoveClock[ply];
+        setEnPassantSquare(undoEnPassant[ply]);
+    }
+
+    // corner of the rook that castles with the king going to 'kingTo' (g1 -> h1, c1 -> a1)
+    private static int castlingRookFrom(int kingTo) {
+        return (kingTo & 7) == 6 ? kingTo + 1 : kingTo - 2;
+    }
+
+    // A game that goes on for MAX_PLY moves fills the undo stack. The older half is dropped:
+    // those moves are never taken back and lie far behind the last capture or pawn move.
+    private void dropOldestHistory() {
+        int keep = MAX_PLY / 2;
+        int drop = ply - keep;
+        System.arraycopy(undoMove, drop, undoMove, 0, keep);
+        System.arraycopy(undoHalfmoveClock, drop, undoHalfmoveClock, 0, keep);
+        System.arraycopy(undoCastlingRights, drop, undoCastlingRights, 0, keep);
+        System.arraycopy(undoEnPassant, drop, undoEnPassant, 0, keep);
+        System.arraycopy(undoHash, drop, undoHash, 0, keep);
+        ply = keep;
+    }
+
+    // Checks if the position occurred before with the same side to move. Only the positions since
+    // the last capture or pawn move (the halfmove clock) can be equal, every second one of them is compared.
+    // The search scores a single repetition as a draw.
+    public boolean isRepetition() {
+        return repetitions() > 0;
+    }
+
+    // threefold repetition: the position occurred twice before
+    public boolean isThreefoldRepetition() {
+        return repetitions() >= 2;
+    }
+
+    private int repetitions() {
+        int count = 0;
+        int oldest = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 4; i >= oldest; i -= 2)
+            if (undoHash[i] == hash)
+                count++;
+        return count;
+    }
+
+    // fifty moves of each side without a capture or a pawn move
+    public boolean isFiftyMoveDraw() {
+        return halfmoveClock >= 100;
+    }
+
+    public boolean isMoveLegal(int from, int to) {
+        return isMoveLegal(createMove(from, to));
+    }
+
+    // Checks if the move can be played on this position without leaving the own king in check.
+    // The move may come from another position (e.g. a killer move of the search), so it must also
+    // match what stands on the board: the same move created here has the same encoding.
+    public boolean isMoveLegal(int move) {
+        int from = Move.from(move);
+        int piece = mailbox[from];
+        if (move == Move.NONE || piece == NO_PIECE || colorOf(piece) != sideToMove
+                || move != createMove(from, Move.to(move), Move.promotion(move)))
+            return false;
+        int color = colorOf(piece);
+        return (MoveGenerator.legalTargets(this, from, checkers(color), pinned(color)) & (1L << Move.to(move))) != 0;
+    }
+
+    // Checks for insufficient material using the piece counts
+    public boolean isDeadPosition() {
+        int whitePieces = pieceListSize[ChessBoard.WHITE] - 1, blackPieces = pieceListSize[ChessBoard.BLACK] - 1;
+        int whiteMinors = pieceCount(ChessBoard.WHITE, BISHOP) + pieceCount(ChessBoard.WHITE, KNIGHT);
+        int blackMinors = pieceCount(ChessBoard.BLACK, BISHOP) + pieceCount(ChessBoard.BLACK, KNIGHT);
+        // Only kings
+        if (whitePieces == 0 && blackPieces == 0)
+            return true;
+        // King + bishop or knight vs king
+        if ((whitePieces == 1 && whiteMinors == 1 && blackPieces == 0) ||
+                (blackPieces == 1 && blackMinors == 1 && whitePieces == 0))
+            return true;
+        // King + bishop vs king + bishop
+        return whitePieces == 1 && blackPieces == 1
+                && pieceCount(ChessBoard.WHITE, BISHOP) == 1 && pieceCount(ChessBoard.BLACK, BISHOP) == 1;
+    }
+
+    public boolean hasAnyLegalMove(int color) {
+        return MoveGenerator.hasLegalMove(this, color);
+    }
+}
@@ -0,0 +1,83 @@
+package chess.src.board;
+
+import java.nio.ByteBuffer;
+
+// Compact binary form of a position, ENCODED_SIZE bytes:
+//   8 bytes  occupancy bitboard
+//  16 bytes  piece code of every occupied square in square order, one nibble each (at most 32 pieces)
+//   1 byte   castling rights (bits 0-3) and side to move (bit 4)
+//   1 byte   en passant square, -1 if none
+//   2 bytes  halfmove clock
+//   2 bytes  fullmove number
+// The bytes are read and written directly at the buffer's position, no intermediate array or string
+// is created, so a position can be kept in a direct or memory-mapped buffer or sent as it is.
+// The undo stack is not part of the encoding.
+public class PositionCodec {
+    public static final int ENCODED_SIZE = 30;
+
+    private PositionCodec() {
+    }
+
+    // writes the position at the buffer's position and advances it by ENCODED_SIZE
+    public static void encode(Position position, ByteBuffer buffer) {
+        long occupied = position.occupied();
+        if (Long.bitCount(occupied) > 32)
+            throw new IllegalArgumentException("Only positions with at most 32 pieces can be encoded");
+        buffer.putLong(occupied);
+
+        int written = 0;
+        for (long o = occupied; o != 0; ) {
+            int high = position.pieceAt(Long.numberOfTrailingZeros(o));
+            o &= o - 1;
+            int low = 0;
+            if (o != 0) {
+                low = position.pieceAt(Long.numberOfTrailingZeros(o));
+                o &= o - 1;
+            }
+            buffer.put((byte) (high << 4 | low));
+            written++;
+        }
+        for (; written < 16; written++)
+            buffer.put((byte) 0);
+
+        buffer.put((byte) (position.getCastlingRights() | position.getSideToMove() << 4));
+        buffer.put((byte) position.getEnPassantSquare());
+        buffer.putShort((short) position.getHalfmoveClock());
+        buffer.putShort((short) position.getFullmoveNumber());
+    }
+
+    // sets up the position from the bytes at the buffer's position and advances it by ENCODED_SIZE
+    public static void decode(ByteBuffer buffer, Position position) {
+        long occupied = buffer.getLong();
+        if (Long.bitCount(occupied) > 32)
+            throw new IllegalArgumentException("Invalid encoded position, more than 32 pieces");
+        position.clear();
+
+        int start = buffer.position();
+        int nibble = 0;
+        for (long o = occupied; o != 0; o &= o - 1, nibble++) {
+            int packed = buffer.get(start + (nibble >> 1));
+            int piece = (nibble & 1) == 0 ? (packed >> 4) & 15 : packed & 15;
+            if (piece >= Position.NO_PIECE || position.pieceCount(Position.colorOf(piece)) == 16)
+                throw new IllegalArgumentException("Invalid encoded position, bad piece code " + piece);
+            position.putPiece(piece, Long.numberOfTrailingZeros(o));
+        }
+        buffer.position(start + 16);
+
+        int state = buffer.get();
+        position.setSideToMove((state >> 4) & 1);
+        position.setCastlingRights(state & 15);
+        int enPassant = buffer.get();
+        if (enPassant < -1 || enPassant > 63)
+            throw new IllegalArgumentException("Invalid encoded position, bad en passant square " + enPassant);
+        position.setEnPassantSquare(enPassant);
+        position.setHalfmoveClock(buffer.getShort() & 0xFFFF);
+        position.setFullmoveNumber(buffer.getShort() & 0xFFFF);
+    }
+
+    public static Position decode(ByteBuffer buffer) {
+        Position position = new Position();
+        decode(buffer, position);
+        return position;
+    }
+}
@@ -1,21 +1,21 @@
 package chess.src.board;
 
-import chess.src.piece.Pawn;
 import chess.src.piece.Piece;
-import chess.src.piece.Queen;
 
+// A square is a view of one square of the board's Position, it holds no piece itself.
 public class Square {
     private ChessBoard board;
     private int column;
     private int row;
+    private int index;
     private String squareSymbol;
-    private Piece piece;
 
 
     public Square(ChessBoard board, int column, int row){
         this.board = board;
         this.column = column;
         this.row = row;
+        this.index = Position.squareIndex(column, row);
         this.squareSymbol = (char) (this.column + 97) + String.valueOf(this.row + 1);
     }
 
@@ -27,8 +27,13 @@ public class Square {
         return row;
     }
 
+    // index of this square in the bitboard Position (A1 = 0, H8 = 63)
+    public int getIndex() {
+        return index;
+    }
+
     public Piece getPiece() {
-        return piece;
+        return Piece.of(board.getPosition().pieceAt(index));
     }
 
     public ChessBoard getBoard() {
@@ -44,23 +49,15 @@ public class Square {
 
     public String getSquareSymbol(){return this.squareSymbol;}
 
+    // puts the piece on this square, replacing the piece already there (if any)
     public void setPiece(Piece piece) {
-        // The internal structure of the piece prohibits the piece from moving to a square occupied by another piece of the same color.
-        if(this.piece != null) { // so if this square is not empty, the piece at this square is captured
-            board.decreaseCount(this.piece.getColor()); // and the piece count of that color is decreased by one.
-        }
-        if(piece != null){
-            String source = piece.getLocationSymbol();
-            String pieceSymbol = (piece.getColor() == ChessBoard.WHITE ? "w" : "b") + piece.toString().toUpperCase();
-            board.updateBoardMap(source, this.squareSymbol, pieceSymbol);
-        }
-        this.piece = piece;
-
+        board.getPosition().removePiece(index);
+        if (piece != null)
+            board.getPosition().putPiece(piece.getCode(), index);
     }
 
-
     public boolean isEmpty(){
-        return piece == null;
+        return board.getPosition().pieceAt(index) == Position.NO_PIECE;
     }
     public boolean isAtSameColumn(Square s){
         return this.column == s.column;
@@ -72,12 +69,7 @@ public class Square {
         return (this.column + 1 == targetLocation.column) || (this.column - 1 == targetLocation.column);
     }
 
-    public void putNewQueen(Pawn pawn, int color) {
-        this.piece = new Queen(color, this);
-        board.updateBoardMap(pawn.getLocationSymbol(), this.squareSymbol, (this.piece.getColor() == ChessBoard.WHITE ? "w" : "b") + this.piece.toString().toUpperCase());
-    }
-
     public void clear() {
-        piece = null;
+        setPiece(null);
     }
 }
@@ -0,0 +1,74 @@
+package chess.src.board;
+
+// Random keys for Zobrist hashing. The hash of a position is the xor of the keys of its features:
+// every piece on its square, the side to move, the castling rights and the en passant column.
+// A move only changes a few features, so the hash is updated by xor'ing their keys in and out
+// instead of being computed again. The keys come from a generator with a fixed seed, so a
+// position has the same hash in every run.
+// The key arrays are private, only their keys are handed out: a changed key would silently break every
+// incremental hash.
+public class Zobrist {
+    public static final long BLACK_TO_MOVE;
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    // indexed by the castling rights as a 4-bit mask
+    private static final long[] CASTLING = new long[16];
+    // indexed by the column of the en passant square
+    private static final long[] EN_PASSANT = new long[8];
+
+    private static long seed = 0x3A5F1C2B9D7E4681L;
+
+    static {
+        for (int piece = 0; piece < 12; piece++)
+            for (int square = 0; square < 64; square++)
+                PIECE_SQUARE[piece][square] = nextRandom();
+        BLACK_TO_MOVE = nextRandom();
+        // the four single rights get their own key, a combination is the xor of its rights
+        long[] rights = { nextRandom(), nextRandom(), nextRandom(), nextRandom() };
+        for (int mask = 0; mask < 16; mask++)
+            for (int right = 0; right < 4; right++)
+                if ((mask & (1 << right)) != 0)
+                    CASTLING[mask] ^= rights[right];
+        for (int column = 0; column < 8; column++)
+            EN_PASSANT[column] = nextRandom();
+    }
+
+    private Zobrist() {
+    }
+
+    // key of the piece (see Position for the codes) standing on the square
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    // key of the castling rights, a 4-bit mask
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    // key of the en passant square's column
+    public static long enPassant(int column) {
+        return EN_PASSANT[column];
+    }
+
+    // hash of the position computed from scratch, used to verify the incremental one
+    public static long compute(Position position) {
+        long hash = position.getSideToMove() == ChessBoard.BLACK ? BLACK_TO_MOVE : 0;
+        hash ^= CASTLING[position.getCastlingRights()];
+        if (position.getEnPassantSquare() >= 0)
+            hash ^= EN_PASSANT[position.getEnPassantSquare() & 7];
+        for (int color = ChessBoard.WHITE; color <= ChessBoard.BLACK; color++) {
+            int[] list = position.pieceList(color);
+            for (int i = 0; i < position.pieceCount(color); i++)
+                hash ^= PIECE_SQUARE[position.pieceAt(list[i])][list[i]];
+        }
+        return hash;
+    }
+
+    // xorshift64* generator
+    private static long nextRandom() {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+}
@@ -1,55 +1,35 @@
 package chess.src.piece;
 
 import chess.src.board.ChessBoard;
-import chess.src.board.InvalidLocationException;
-import chess.src.board.Square;
+import chess.src.board.Position;
 
 public class Bishop extends Piece{
 
-    public Bishop(int color, Square location) {
-        super(color, location);
+    Bishop(int color) {
+        super(color);
     }
 
-    @Override
-    public boolean canMove(String to) throws InvalidLocationException {
-        Square targetLocation = location.getBoard().getSquareAt(to);
-        int rowDistance = targetLocation.getRowDistance(location);
-        int columnDistance = targetLocation.getColumnDistance(location);
-
-        if (Math.abs(rowDistance) != Math.abs(columnDistance)) // if the target is not in any diagonal direction, the move is invalid.
-            return false;
-        if (!((columnDistance == 1 || columnDistance == -1) && (rowDistance == 1 || rowDistance == -1))) { // skip the first squares between the two.
-            // if there are any occupied squares on the way, move is invalid.
-            Square[] between = location.getBoard().getSquaresBetween(location, targetLocation);
-            for(Square sqr: between){
-                if (!sqr.isEmpty()) {
-                    return false;
-                }
-            }
-
-        }
-
-        return targetLocation.isEmpty() || targetLocation.getPiece().getColor() != color;
+    private static final int[][] DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, -1 }, { -1, 1 } };
+    private static final long[][] RAYS = rayTable(DIRECTIONS);
+    private static final MagicTable MAGICS = new MagicTable(RAYS, DIRECTIONS);
+
+    // squares reached along the diagonals, the first occupied square on each ray included
+    public static long attacks(int square, long occupied) {
+        return MAGICS.attacks(square, occupied);
     }
 
     @Override
-    public void move(String to) throws InvalidLocationException {
-        Square targetLocation = location.getBoard().getSquareAt(to);
-
-        targetLocation.setPiece(this);
-        //clear previous location
-        location.clear();
-        //update current location
-        location = targetLocation;
-        location.getBoard().nextPlayer();
+    public long targets(Position position, int square) {
+        return attacks(square, position.occupied()) & ~position.pieces(color);
     }
+
     @Override
     public String toString() {
         return color == ChessBoard.WHITE ? "B" : "b";
     }
 
     @Override
-    public Piece clone(Square newSquare) {
-        return new Bishop(this.color, newSquare);
+    public int getType() {
+        return Position.BISHOP;
     }
 }
@@ -1,53 +1,52 @@
 package chess.src.piece;
 
 import chess.src.board.ChessBoard;
-import chess.src.board.InvalidLocationException;
-import chess.src.board.Square;
+import chess.src.board.Position;
 
 public class King extends Piece{
 
-    public King(int color, Square location) {
-        super(color, location);
+    King(int color) {
+        super(color);
     }
 
-    @Override
-    public boolean canMove(String to) throws InvalidLocationException {
-        Square targetLocation = location.getBoard().getSquareAt(to);
-        int rowDistance = targetLocation.getRowDistance(location);
-        int columnDistance = targetLocation.getColumnDistance(location);
-
-        if(location == targetLocation) {
-            return false;
-        }
-        // checking only the first squares around current location.
-        if (columnDistance == 0){
-            if (rowDistance == 1 || rowDistance == -1)
-                return targetLocation.isEmpty() || targetLocation.getPiece().getColor() != color;
-        } else if (columnDistance == 1 || columnDistance == -1) {
-            if (rowDistance == 0 || rowDistance == 1 || rowDistance == -1)
-                return targetLocation.isEmpty() || targetLocation.getPiece().getColor() != color;
-        }
-        return false;
+    // the first squares around every square, indexed by square
+    private static final long[] ATTACKS = leaperTable(new int[][] {
+            { 0, 1 }, { 1, 1 }, { 1, 0 }, { 1, -1 }, { 0, -1 }, { -1, -1 }, { -1, 0 }, { -1, 1 } });
+
+    public static long attacks(int square) {
+        return ATTACKS[square];
+    }
+
+    // Castling targets (g1/c1 or g8/c8) of a king standing on its square: the right is kept,
+    // the rook is in its corner and the squares between them are empty.
+    // Whether the king is in check or passes an attacked square is decided by MoveGenerator.legalTargets.
+    public static long castlingTargets(int color, int square, Position position) {
+        int base = color == ChessBoard.WHITE ? 0 : 56;
+        int rights = (position.getCastlingRights() >> (2 * color)) & 3;
+        if (rights == 0 || square != base + 4)
+            return 0;
+        long occupied = position.occupied();
+        long rooks = position.pieces(color, Position.ROOK);
+        long targets = 0;
+        if ((rights & 1) != 0 && (occupied & (0x60L << base)) == 0 && (rooks & (1L << (base + 7))) != 0)
+            targets |= 1L << (base + 6);
+        if ((rights & 2) != 0 && (occupied & (0x0EL << base)) == 0 && (rooks & (1L << base)) != 0)
+            targets |= 1L << (base + 2);
+        return targets;
     }
 
     @Override
-    public void move(String to) throws InvalidLocationException {
-        Square targetLocation = location.getBoard().getSquareAt(to);
-
-        targetLocation.setPiece(this);
-        //clear previous location
-        location.clear();
-        //update current location
-        location = targetLocation;
-        location.getBoard().nextPlayer();
+    public long targets(Position position, int square) {
+        return (ATTACKS[square] & ~position.pieces(color)) | castlingTargets(color, square, position);
     }
+
     @Override
     public String toString() {
         return color == ChessBoard.WHITE ? "K" : "k";
     }
 
     @Override
-    public Piece clone(Square newSquare) {
-        return new King(this.color, newSquare);
+    public int getType() {
+        return Position.KING;
     }
 }
@@ -1,51 +1,34 @@
 package chess.src.piece;
 
 import chess.src.board.ChessBoard;
-import chess.src.board.InvalidLocationException;
-import chess.src.board.Square;
+import chess.src.board.Position;
 
 public class Knight extends Piece{
 
-    public Knight(int color, Square location) {
-        super(color, location);
+    Knight(int color) {
+        super(color);
     }
 
-    @Override
-    public boolean canMove(String to) throws InvalidLocationException {
-        Square targetLocation = location.getBoard().getSquareAt(to);
-        int rowDistance = targetLocation.getRowDistance(location);
-        int columnDistance = targetLocation.getColumnDistance(location);
-
-        if (location == targetLocation)
-            return false;
-        // if the target location satisfies the one of the conditions below, the move is valid.
-        if ((rowDistance == 2 || rowDistance == -2) && (columnDistance == 1 || columnDistance == -1))
-            return targetLocation.isEmpty() || targetLocation.getPiece().getColor() != color;
-        if ((rowDistance == 1 || rowDistance == -1) && (columnDistance == 2 || columnDistance == -2))
-            return targetLocation.isEmpty() || targetLocation.getPiece().getColor() != color;
-
-        return false;
+    // knight jumps from every square, indexed by square
+    private static final long[] ATTACKS = leaperTable(new int[][] {
+            { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 }, { -2, -1 }, { -2, 1 }, { -1, 2 } });
+
+    public static long attacks(int square) {
+        return ATTACKS[square];
     }
 
     @Override
-    public void move(String to) throws InvalidLocationException {
-        Square targetLocation = location.getBoard().getSquareAt(to);
-
-        targetLocation.setPiece(this);
-
-        //clear previous location
-        location.clear();
-        //update current location
-        location = targetLocation;
-        location.getBoard().nextPlayer();
+    public long targets(Position position, int square) {
+        return ATTACKS[square] & ~position.pieces(color);
     }
+
     @Override
     public String toString() {
         return color == ChessBoard.WHITE ? "N" : "n";
     }
 
     @Override
-    public Piece clone(Square newSquare) {
-        return new Knight(this.color, newSquare);
+    public int getType() {
+        return Position.KNIGHT;
     }
 }
@@ -0,0 +1,97 @@
+package chess.src.piece;
+
+// Magic bitboard attack table of a sliding piece.
+// Only the squares that can block a ray matter (the relevant mask, the board edges excluded).
+// Multiplying the relevant blockers by a "magic" number gathers their bits into the top bits of
+// the product, which is then used as an index into a table holding the precomputed attacks.
+// The magic numbers are searched once when the class is loaded, with fixed seeds so that
+// every run builds the same tables.
+class MagicTable {
+    private final long[] masks = new long[64];
+    private final long[] magics = new long[64];
+    private final int[] shifts = new int[64];
+    private final int[] offsets = new int[64];
+    private final long[] table;
+
+    // generator seeds per row that are known to find magics after few attempts
+    private static final long[] SEEDS = { 728, 10316, 55013, 32803, 12281, 15100, 16645, 255 };
+    private long seed;
+
+    MagicTable(long[][] rays, int[][] directions) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            long mask = 0;
+            for (int d = 0; d < rays.length; d++) {
+                long ray = rays[d][square];
+                if (ray == 0)
+                    continue;
+                // the last square of a ray cannot block anything behind it
+                boolean increasing = directions[d][1] > 0 || (directions[d][1] == 0 && directions[d][0] > 0);
+                long edge = increasing ? Long.highestOneBit(ray) : Long.lowestOneBit(ray);
+                mask |= ray & ~edge;
+            }
+            masks[square] = mask;
+            shifts[square] = 64 - Long.bitCount(mask);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(mask);
+        }
+        table = new long[size];
+        for (int square = 0; square < 64; square++)
+            findMagic(rays, directions, square);
+    }
+
+    long attacks(int square, long occupied) {
+        return table[offsets[square] + (int) (((occupied & masks[square]) * magics[square]) >>> shifts[square])];
+    }
+
+    private void findMagic(long[][] rays, int[][] directions, int square) {
+        long mask = masks[square];
+        int size = 1 << Long.bitCount(mask);
+        long[] occupancies = new long[size];
+        long[] reference = new long[size];
+
+        // every subset of the mask, enumerated with the carry-rippler trick
+        long subset = 0;
+        int count = 0;
+        do {
+            occupancies[count] = subset;
+            reference[count] = Piece.slidingAttacks(rays, directions, square, subset);
+            count++;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+
+        // epoch[i] tells in which attempt table entry i was last written, so nothing has to be cleared
+        int[] epoch = new int[size];
+        int offset = offsets[square];
+        int shift = shifts[square];
+        seed = SEEDS[square >> 3];
+        for (int attempt = 1;; attempt++) {
+            long magic = nextRandom() & nextRandom() & nextRandom(); // few set bits work best
+            if (Long.bitCount((mask * magic) >>> 56) < 6)
+                continue;
+            boolean collision = false;
+            for (int i = 0; i < count && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> shift);
+                if (epoch[index] < attempt) {
+                    epoch[index] = attempt;
+                    table[offset + index] = reference[i];
+                } else if (table[offset + index] != reference[i]) {
+                    // two blocker sets with different attacks share an index, try another number
+                    collision = true;
+                }
+            }
+            if (!collision) {
+                magics[square] = magic;
+                return;
+            }
+        }
+    }
+
+    // xorshift64* generator
+    private long nextRandom() {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+}
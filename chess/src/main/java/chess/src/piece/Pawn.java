@@ -3,76 +3,43 @@ package chess.src.piece;
 import chess.src.board.*;
 
 public class Pawn extends Piece {
-    private boolean initialLocation;
-    public boolean isPromoted = false;
-
-    public Pawn(int color, Square location, boolean initialLocation) {
-        super(color, location);
-        this.initialLocation = initialLocation;
+    Pawn(int color) {
+        super(color);
     }
 
-    @Override
-    public boolean canMove(String to) throws InvalidLocationException {
-        boolean validMove = false;
-
-        Square targetLocation = location.getBoard().getSquareAt(to);
-        int rowDistance = targetLocation.getRowDistance(location);
-        if (this.location.isAtSameColumn(targetLocation)) {
-            if (color == ChessBoard.WHITE && rowDistance > 0 && rowDistance <= 2) {
-                if (rowDistance == 2) {
-                    if (initialLocation) {
-                        // pawn is moving twice, check two squares in front are empty
-                        Square[] between = location.getBoard().getSquaresBetween(location, targetLocation);
-                        validMove = targetLocation.isEmpty() && between[0].isEmpty();
-                    }
-                } else {
-                    validMove = targetLocation.isEmpty();
-                }
-                return validMove;
-            } else if (color == ChessBoard.BLACK && rowDistance < 0 && rowDistance >= -2) {
-                if (rowDistance == -2) {
-                    if (initialLocation) {
-                        // pawn is moving twice, check two squares in front are empty
-                        Square[] between = location.getBoard().getSquaresBetween(location, targetLocation);
-                        validMove = targetLocation.isEmpty() && between[0].isEmpty();
-                    }
-                } else {
-                    validMove = targetLocation.isEmpty();
-                }
-            }
+    // diagonal captures of a pawn, indexed by color and square
+    private static final long[][] ATTACKS = {
+            leaperTable(new int[][] { { -1, 1 }, { 1, 1 } }),
+            leaperTable(new int[][] { { -1, -1 }, { 1, -1 } }) };
 
-            // attacking diagonals
-        } else if (this.location.isNeighborColumn(targetLocation)) {
-            if (color == ChessBoard.WHITE && rowDistance == 1) {
-                validMove = !targetLocation.isEmpty() && targetLocation.getPiece().getColor() == ChessBoard.BLACK;
-            } else if (color == ChessBoard.BLACK && rowDistance == -1) {
-                validMove = !targetLocation.isEmpty() && targetLocation.getPiece().getColor() == ChessBoard.WHITE;
-            }
+    public static long attacks(int color, int square) {
+        return ATTACKS[color][square];
+    }
 
+    // one or two squares forward; two only from the starting row and if both squares are empty
+    public static long pushes(int color, int square, long occupied) {
+        long empty = ~occupied;
+        if (color == ChessBoard.WHITE) {
+            long single = (1L << square << 8) & empty;
+            long twice = (square >> 3) == 1 ? (single << 8) & empty : 0;
+            return single | twice;
         }
-        return validMove;
+        long single = (1L << square >>> 8) & empty;
+        long twice = (square >> 3) == 6 ? (single >>> 8) & empty : 0;
+        return single | twice;
     }
 
-    @Override
-    public void move(String to) throws InvalidLocationException {
-
-        Square targetLocation = location.getBoard().getSquareAt(to);
-        // promoteToQueen
-        if (targetLocation.isAtLastRow(color)) {
-            targetLocation.putNewQueen(this, color);
-            isPromoted = true;
-        } else {
-            targetLocation.setPiece(this);
-            // clear previous location
-            location.clear();
-            // update current location
-            location = targetLocation;
-            if (initialLocation)
-                initialLocation = false;
-        }
+    // pushes and captures, en passant included when it is this color's turn
+    public static long targets(int color, int square, Position position) {
+        long captures = position.pieces(1 - color);
+        if (color == position.getSideToMove() && position.getEnPassantSquare() >= 0)
+            captures |= 1L << position.getEnPassantSquare();
+        return pushes(color, square, position.occupied()) | (ATTACKS[color][square] & captures);
+    }
 
-        location.getBoard().nextPlayer();
-        
+    @Override
+    public long targets(Position position, int square) {
+        return targets(color, square, position);
     }
 
     @Override
@@ -81,7 +48,7 @@ public class Pawn extends Piece {
     }
 
     @Override
-    public Piece clone(Square newSquare) {
-        return new Pawn(this.color, newSquare, this.initialLocation);
+    public int getType() {
+        return Position.PAWN;
     }
 }
@@ -1,28 +1,110 @@
 package chess.src.piece;
 
+import chess.src.board.ChessBoard;
 import chess.src.board.InvalidLocationException;
+import chess.src.board.Position;
 import chess.src.board.Square;
 
+// Pieces are stateless flyweights, one instance per type and color (see Piece.of).
+// Where a piece stands is known only by the Position of the board, so the piece methods
+// are given the square the piece is on.
 public abstract class Piece {
-    protected int color;
-    protected Square location;
+    protected final int color;
 
-    public Piece(int color, Square location) {
+    protected Piece(int color) {
         this.color = color;
-        this.location = location;
+    }
+
+    // the instances of all pieces, indexed by Position piece code
+    private static final Piece[] PIECES = {
+            new Pawn(ChessBoard.WHITE), new Knight(ChessBoard.WHITE), new Bishop(ChessBoard.WHITE),
+            new Rook(ChessBoard.WHITE), new Queen(ChessBoard.WHITE), new King(ChessBoard.WHITE),
+            new Pawn(ChessBoard.BLACK), new Knight(ChessBoard.BLACK), new Bishop(ChessBoard.BLACK),
+            new Rook(ChessBoard.BLACK), new Queen(ChessBoard.BLACK), new King(ChessBoard.BLACK) };
+
+    // the piece with the Position piece code, null for Position.NO_PIECE
+    public static Piece of(int code) {
+        return code == Position.NO_PIECE ? null : PIECES[code];
     }
 
     public int getColor(){return color;}
 
-    public String getLocationSymbol(){return this.location.getSquareSymbol();}
+    // the Position piece code of this piece
+    public int getCode() {
+        return Position.makePiece(color, getType());
+    }
+
+    // a piece can move to a square if the square is one of its targets on the board's position
+    public boolean canMove (Square from, int to) {
+        return (targets(from.getBoard().getPosition(), from.getIndex()) & (1L << to)) != 0;
+    }
 
-    public abstract boolean canMove (String to) throws InvalidLocationException;
+    public boolean canMove (Square from, String to) throws InvalidLocationException {
+        return canMove(from, ChessBoard.parseSquare(to));
+    }
 
-    public abstract void move (String to) throws InvalidLocationException;
+    // Moves the piece standing on 'from' to the square with index 0..63 (a1 = 0, h8 = 63), the move must be valid.
+    // The move is played on the position of the board, a pawn reaching the last row becomes a queen.
+    public void move (Square from, int to) {
+        ChessBoard board = from.getBoard();
+        board.makeMove(board.getPosition().createMove(from.getIndex(), to));
+    }
 
-    public abstract Piece clone(Square newSquare);
+    public void move (Square from, String to) throws InvalidLocationException {
+        move(from, ChessBoard.parseSquare(to));
+    }
+
+    // every square this piece can move to from the square, as a bitboard. The move may still leave the own king in check.
+    public abstract long targets(Position position, int square);
+
+    // returns the piece type used by the bitboard Position, e.g. Position.KNIGHT
+    public abstract int getType();
+
+    // builds the attack table of a piece that jumps by fixed {column, row} offsets, indexed by square
+    protected static long[] leaperTable(int[][] offsets) {
+        long[] table = new long[64];
+        for (int square = 0; square < 64; square++) {
+            for (int[] offset : offsets) {
+                int column = (square & 7) + offset[0];
+                int row = (square >> 3) + offset[1];
+                if (column >= 0 && column < 8 && row >= 0 && row < 8)
+                    table[square] |= 1L << Position.squareIndex(column, row);
+            }
+        }
+        return table;
+    }
+
+    // rays[d][square] holds every square from the square (exclusive) to the edge of the board in direction d
+    protected static long[][] rayTable(int[][] directions) {
+        long[][] rays = new long[directions.length][64];
+        for (int d = 0; d < directions.length; d++) {
+            for (int square = 0; square < 64; square++) {
+                int column = (square & 7) + directions[d][0];
+                int row = (square >> 3) + directions[d][1];
+                while (column >= 0 && column < 8 && row >= 0 && row < 8) {
+                    rays[d][square] |= 1L << Position.squareIndex(column, row);
+                    column += directions[d][0];
+                    row += directions[d][1];
+                }
+            }
+        }
+        return rays;
+    }
 
-    public Square getLocation() {
-        return location;
+    // follows every ray until the first occupied square, which is included in the result
+    protected static long slidingAttacks(long[][] rays, int[][] directions, int square, long occupied) {
+        long attacks = 0;
+        for (int d = 0; d < rays.length; d++) {
+            long ray = rays[d][square];
+            long blockers = ray & occupied;
+            if (blockers != 0) {
+                // rays going up the board meet the lowest blocker first, rays going down the highest one
+                boolean increasing = directions[d][1] > 0 || (directions[d][1] == 0 && directions[d][0] > 0);
+                int blocker = increasing ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+                ray ^= rays[d][blocker];
+            }
+            attacks |= ray;
+        }
+        return attacks;
     }
 }
@@ -1,3 +1,15 @@
 package com.example.messaging_stomp_websocket;
 
-public record ChessMoveInformation(String source, String target, String piece, String oldPos, String orientation){}
\ No newline at end of file
+import chess.src.board.ChessBoard;
+import chess.src.board.InvalidLocationException;
+
+public record ChessMoveInformation(String source, String target, String piece, String oldPos, String orientation){
+    // the square names sent by the client are parsed once here, the game works with square indexes
+    public int sourceIndex() throws InvalidLocationException {
+        return ChessBoard.parseSquare(source);
+    }
+
+    public int targetIndex() throws InvalidLocationException {
+        return ChessBoard.parseSquare(target);
+    }
+}
@@ -104,6 +104,9 @@ public class GameRooms {
         }
         users.remove(sessionId);
         games.remove(game);
+        if(game != null){
+            game.stopAi();
+        }
         return opponent;
 
     }
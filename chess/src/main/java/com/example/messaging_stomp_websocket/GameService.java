@@ -3,7 +3,8 @@ package com.example.messaging_stomp_websocket;
 import chess.src.ai.*;
 import chess.src.board.ChessBoard;
 import chess.src.board.InvalidLocationException;
-import chess.src.piece.Pawn;
+import chess.src.board.Move;
+import chess.src.board.Square;
 import chess.src.piece.Piece;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -20,11 +21,20 @@ public class GameService {
     public AtomicInteger counter = new AtomicInteger(); // for debugging
     protected ChessBoard board = new ChessBoard();
     //protected ChessBoard board = new ChessBoard("8/8/8/8/4b3/5k2/7B/6K1 w - - 0 1");
-    public String json = new ObjectMapper().writeValueAsString(board.boardMap);
+    public String json = new ObjectMapper().writeValueAsString(board.getBoardMap());
     public String gameEnded = null;
 
     public ChessAI ai;
 
+    // The AI plays on its own clock: it thinks longer on moves early in the game and hurries when
+    // the clock runs low, but never answers slower than AI_MAX_MOVE_MILLIS.
+    private static final long AI_CLOCK_MILLIS = 3 * 60 * 1000;
+    private static final long AI_INCREMENT_MILLIS = 1000;
+    private static final long AI_MAX_MOVE_MILLIS = 2000;
+    private long aiClockMillis = AI_CLOCK_MILLIS;
+    // threads the AI of a game searches with by default, see setAiThreads
+    public static final int DEFAULT_AI_THREADS = 1;
+
     public GameService() throws JsonProcessingException {
     }
 
@@ -34,6 +44,10 @@ public class GameService {
     }
 
     public GameService(int color, String sessionId) throws JsonProcessingException {
+        this(color, sessionId, DEFAULT_AI_THREADS);
+    }
+
+    public GameService(int color, String sessionId, int aiThreads) throws JsonProcessingException {
         if (color == ChessBoard.WHITE) {
             this.white = sessionId;
             this.black = null;
@@ -43,16 +57,28 @@ public class GameService {
         }
         this.playerVsAi = true;
         if (playerVsAi) {
-            this.ai = new ChessAI(color == ChessBoard.BLACK ? ChessBoard.WHITE : ChessBoard.BLACK, 3);
+            this.ai = new ChessAI(color == ChessBoard.BLACK ? ChessBoard.WHITE : ChessBoard.BLACK, ChessAI.MAX_DEPTH);
+            // the book is optional, without one the AI searches from the first move on
+            OpeningBook book = OpeningBook.getDefault();
+            if (book != null)
+                ai.setOpeningBook(book);
+            setAiThreads(aiThreads);
         }
     }
 
+    // Threads the AI of this game searches with: the main search and threads - 1 Lazy SMP helpers.
+    // More threads make a deeper search in the same time, when the server has idle cores.
+    public void setAiThreads(int threads) {
+        if (ai != null)
+            ai.setHelperThreads(threads - 1);
+    }
+
     public boolean isFull() {
         return white != null && black != null;
     }
 
     private void updateJson() throws JsonProcessingException {
-        this.json = new ObjectMapper().writeValueAsString(board.boardMap);
+        this.json = new ObjectMapper().writeValueAsString(board.getBoardMap());
     }
 
     public boolean isGameEnded() {
@@ -70,26 +96,45 @@ public class GameService {
                 gameEnded = "Dead Position";
                 return true;
             }
+            if (board.isThreefoldRepetition()) {
+                gameEnded = "Threefold Repetition";
+                return true;
+            }
+            if (board.isFiftyMoveDraw()) {
+                gameEnded = "Fifty-Move Rule";
+                return true;
+            }
             return false;
         }
     }
 
-    public boolean makeAiMoveFirst() throws JsonProcessingException {
-        if (this.playerVsAi && this.ai != null) {
-            MoveInformation aiMove = ai.getBestMove(board);
-            Piece piece = board.boardMatrix[aiMove.location().getColumn()][aiMove.location().getRow()].getPiece();
-            try {
-                piece.move(aiMove.target());
-            } catch (InvalidLocationException ile) {
-                System.out.println(ile.getMessage());
-            }
-            if(piece instanceof Pawn && ((Pawn)piece).isPromoted) {
-                board.deletePromotedPawn(piece.getLocation());
-            }
-            updateJson();
-            System.out.println("AI moved: " + aiMove.location().getPiece() + " to " + aiMove.target());
-            return true;
+    // The AI searches and answers with encoded int moves (see Move).
+    // The MoveInformation of the chosen move is only derived here, at the boundary to the web layer.
+    // null if the AI has no move (the game is over or its search was stopped), nothing is changed then.
+    private MoveInformation playAiMove() throws JsonProcessingException {
+        long start = System.currentTimeMillis();
+        int move = ai.getBestMove(board, aiClockMillis, AI_INCREMENT_MILLIS, AI_MAX_MOVE_MILLIS);
+        if (move == Move.NONE) {
+            System.out.println("AI has no move");
+            return null;
         }
+        aiClockMillis = Math.max(0, aiClockMillis - (System.currentTimeMillis() - start)) + AI_INCREMENT_MILLIS;
+        int from = Move.from(move), to = Move.to(move);
+        MoveInformation aiMove = new MoveInformation(board.getSquareAt(from), Move.squareSymbol(to));
+        Piece piece = aiMove.location().getPiece();
+        board.makeMove(move);
+        updateJson();
+        System.out.println("AI moved: " + piece + " to " + aiMove.target() + " (depth " + ai.getCompletedDepth()
+                + (ai.wasPonderHit() ? ", ponder hit" : "") + ")");
+        // think on the player's time about the reply the AI expects, unless the move ended the game
+        if (!isGameEnded())
+            ai.ponder(board);
+        return aiMove;
+    }
+
+    public boolean makeAiMoveFirst() throws JsonProcessingException {
+        if (this.playerVsAi && this.ai != null)
+            return playAiMove() != null;
         return false;
     }
 
@@ -98,83 +143,47 @@ public class GameService {
         if (!board.getCurrentPlayer().equals(orientation))
             return false;
 
-        Piece piece = null;
-        boolean invalidLocation = false;
+        int source, target;
         try {
-            piece = board.getPieceAt(move.source());
+            source = move.sourceIndex();
+            target = move.targetIndex();
         } catch (InvalidLocationException ile) {
-            invalidLocation = true;
             System.out.println(ile.getMessage());
-        }
-        if (invalidLocation || piece == null)
             return false;
-
-        boolean canMove = false;
-        try {
-            canMove = piece.canMove(move.target());
-        } catch (InvalidLocationException ile) {
-            System.out.println(ile.getMessage());
-            invalidLocation = true;
         }
-        if (invalidLocation || !canMove)
+
+        Square from = board.getSquareAt(source);
+        Piece piece = from.getPiece();
+        if (piece == null || !piece.canMove(from, target))
             return false;
 
-        if (!board.isMoveLegal(piece.getLocation(), move.target())) {
+        if (!board.isMoveLegal(from, target)) {
             System.out.println("King in check, move is not allowed");
             return false;
         }
 
-        try {
-            piece.move(move.target());
-        } catch (InvalidLocationException ile) {
-            System.out.println(ile.getMessage());
-        }
-        if(piece instanceof Pawn && ((Pawn)piece).isPromoted) {
-            board.deletePromotedPawn(piece.getLocation());
-        }
+        piece.move(from, target);
 
         updateJson();
         int nextPlayer = board.isWhitePlaying() ? ChessBoard.WHITE : ChessBoard.BLACK;
 
-        if (!board.hasAnyLegalMove(nextPlayer)) {
-            if (board.isKingInCheck(nextPlayer))
-                gameEnded = "Checkmate";
-            else
-                gameEnded = "Stalemate";
-            return true;
-        } else if (board.isDeadPosition()) {
-            gameEnded = "Dead Position";
+        // checkmate, stalemate, dead position, repetition or fifty moves
+        if (isGameEnded()) {
+            stopAi();
             return true;
         }
 
         if (this.playerVsAi && nextPlayer == ai.aiColor) {
-            MoveInformation aiMove = ai.getBestMove(board);
-            piece = board.boardMatrix[aiMove.location().getColumn()][aiMove.location().getRow()].getPiece();
-            try {
-                piece.move(aiMove.target());
-            } catch (InvalidLocationException ile) {
-                System.out.println(ile.getMessage());
-            }
-            if(piece instanceof Pawn && ((Pawn)piece).isPromoted) {
-                board.deletePromotedPawn(piece.getLocation());
-            }
-            updateJson();
-            System.out.println("AI moved: " + aiMove.location().getPiece() + " to " + aiMove.target());
-
-            nextPlayer = board.isWhitePlaying() ? ChessBoard.WHITE : ChessBoard.BLACK;
-
-            if (!board.hasAnyLegalMove(nextPlayer)) {
-                if (board.isKingInCheck(nextPlayer))
-                    gameEnded = "Checkmate";
-                else
-                    gameEnded = "Stalemate";
-            
-            } else if (board.isDeadPosition()) {
-                gameEnded = "Dead Position";
-                
-            }
-
+            playAiMove();
+            if (isGameEnded())
+                stopAi();
         }
         return true;
     }
+
+    // stops the AI's pondering when the game is over or left
+    public void stopAi() {
+        if (ai != null)
+            ai.stopPondering();
+    }
 }
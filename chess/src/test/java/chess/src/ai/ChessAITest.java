@@ -0,0 +1,146 @@
+package chess.src.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import chess.src.board.ChessBoard;
+import chess.src.board.Move;
+import chess.src.board.MoveGenerator;
+import chess.src.board.Position;
+
+class ChessAITest {
+
+	@Test
+	void timedSearchStopsInTimeWithALegalMove() {
+		ChessBoard board = new ChessBoard();
+		ChessAI ai = new ChessAI(ChessBoard.WHITE, ChessAI.MAX_DEPTH);
+		long start = System.currentTimeMillis();
+		int move = ai.getBestMove(board, 60_000, 0, 300);
+		long elapsed = System.currentTimeMillis() - start;
+
+		assertTrue(board.getPosition().isMoveLegal(move), Move.toString(move));
+		assertTrue(ai.getCompletedDepth() >= 1);
+		// the hard limit is 300 ms, the margin is for a slow or busy machine
+		assertTrue(elapsed < 5000, elapsed + "ms");
+	}
+
+	@Test
+	void findsMateInOne() {
+		ChessBoard board = new ChessBoard("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1");
+		ChessAI ai = new ChessAI(ChessBoard.WHITE, ChessAI.MAX_DEPTH);
+		assertEquals("d1d8", Move.toString(ai.getBestMove(board, 60_000, 0, 500)));
+	}
+
+	@Test
+	void principalVariationIsALegalLineStartingWithTheBestMove() {
+		ChessBoard board = new ChessBoard("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+		ChessAI ai = new ChessAI(ChessBoard.WHITE, 5);
+		int move = ai.getBestMove(board);
+		int[] pv = ai.getPrincipalVariation();
+
+		assertTrue(pv.length > 0);
+		assertEquals(move, pv[0]);
+		Position position = new Position(board.getPosition());
+		for (int m : pv) {
+			assertTrue(position.isMoveLegal(m), Move.toString(m));
+			position.makeMove(m);
+		}
+	}
+
+	@Test
+	void selectiveSearchStillFindsAQuietMateInTwo() {
+		// a quiet king move first (c6b6 or c6c7), then the rook mates; a rook check at once lets the king out
+		ChessBoard board = new ChessBoard("k7/8/2K5/8/8/8/8/7R w - - 0 1");
+		for (boolean enabled : new boolean[] { false, true }) {
+			ChessAI ai = new ChessAI(ChessBoard.WHITE, 6);
+			ai.setNullMovePruning(enabled);
+			ai.setLateMoveReductions(enabled);
+			ai.setFutilityPruning(enabled);
+			ai.getBestMove(board);
+			assertTrue(ai.getScore() > 99_000, "score " + ai.getScore());
+			assertEquals(3, ai.getPrincipalVariation().length);
+		}
+	}
+
+	@Test
+	void parallelRootSearchFindsTheSameMate() {
+		ChessBoard board = new ChessBoard("k7/8/2K5/8/8/8/8/7R w - - 0 1");
+		ChessAI ai = new ChessAI(ChessBoard.WHITE, 6);
+		ai.setParallelism(4);
+		int move = ai.getBestMove(board);
+
+		assertTrue(ai.getScore() > 99_000, "score " + ai.getScore());
+		assertEquals(move, ai.getPrincipalVariation()[0]);
+		assertTrue(board.getPosition().isMoveLegal(move));
+	}
+
+	@Test
+	void helpersSkipDepthsOnEveryIteration() {
+		for (int depth = 1; depth <= 20; depth++) {
+			// the first two helpers take turns, one of them searches every depth
+			assertTrue(Searcher.skipsDepth(0, depth) != Searcher.skipsDepth(1, depth), "depth " + depth);
+			int searching = 0;
+			for (int helper = 0; helper < 8; helper++)
+				if (!Searcher.skipsDepth(helper, depth))
+					searching++;
+			assertTrue(searching > 0 && searching < 8, "depth " + depth);
+		}
+	}
+
+	@Test
+	void lazySmpHelpersStopWithTheMainSearch() {
+		ChessBoard board = new ChessBoard("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+		ChessAI ai = new ChessAI(ChessBoard.WHITE, 5);
+		ai.setHelperThreads(3);
+		int move = ai.getBestMove(board);
+		long nodes = ai.getNodeCount();
+
+		assertEquals(5, ai.getCompletedDepth());
+		assertEquals(move, ai.getPrincipalVariation()[0]);
+		// the helpers are done when the search returns
+		assertEquals(nodes, ai.getNodeCount());
+	}
+
+	@Test
+	void ponderHitContinuesAndPonderMissStartsOver() {
+		for (boolean expectedReply : new boolean[] { true, false }) {
+			ChessBoard board = new ChessBoard("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+			ChessAI ai = new ChessAI(ChessBoard.WHITE, ChessAI.MAX_DEPTH);
+			board.makeMove(ai.getBestMove(board, 60_000, 0, 200));
+			ai.ponder(board);
+			int ponderMove = ai.getPonderMove();
+			assertTrue(ponderMove != Move.NONE);
+
+			int reply = ponderMove;
+			if (!expectedReply) {
+				int[] moves = new int[MoveGenerator.MAX_MOVES];
+				MoveGenerator.generateLegal(board.getPosition(), ChessBoard.BLACK, moves);
+				reply = moves[0] == ponderMove ? moves[1] : moves[0];
+			}
+			board.makeMove(reply);
+			int move = ai.getBestMove(board, 60_000, 0, 200);
+
+			assertEquals(expectedReply, ai.wasPonderHit());
+			assertTrue(board.getPosition().isMoveLegal(move), Move.toString(move));
+			assertEquals(Move.NONE, ai.getPonderMove());
+		}
+	}
+
+	@Test
+	void stopPonderingRightAfterPonderReturnsPromptly() {
+		ChessAI ai = new ChessAI(ChessBoard.WHITE, ChessAI.MAX_DEPTH);
+		for (int i = 0; i < 20; i++) {
+			ChessBoard board = new ChessBoard("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+			board.makeMove(ai.getBestMove(board, 60_000, 0, 50));
+			ai.ponder(board);
+			assertTrue(ai.getPonderMove() != Move.NONE);
+			// the stop may come before the ponder task has started, it must not get lost
+			assertTimeoutPreemptively(Duration.ofSeconds(5), ai::stopPondering);
+		}
+	}
+}
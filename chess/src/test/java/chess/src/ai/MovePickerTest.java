@@ -0,0 +1,49 @@
+package chess.src.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import chess.src.board.ChessBoard;
+import chess.src.board.Move;
+import chess.src.board.MoveGenerator;
+import chess.src.board.Position;
+
+class MovePickerTest {
+
+	@Test
+	void handsOutEveryLegalMoveOnce() {
+		Position position = new ChessBoard("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1")
+				.getPosition();
+		position.makeMove(position.createMove(0, 1)); // a1b1
+		int previous = position.createMove(56, 57); // a8b8
+		position.makeMove(previous);
+		int[] legal = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateLegal(position, position.getSideToMove(), legal);
+
+		// d2e3 is the hash move and a killer, e1g1 the other killer, the counter move f3f8 is blocked here
+		int hashMove = position.createMove(11, 20);
+		MoveOrdering ordering = new MoveOrdering(4);
+		ordering.cutoff(1, 3, position.createMove(21, 61), previous, new int[0], 0);
+		ordering.cutoff(1, 3, position.createMove(4, 6), Move.NONE, new int[0], 0);
+		ordering.cutoff(1, 3, hashMove, Move.NONE, new int[0], 0);
+
+		MovePicker picker = new MovePicker();
+		picker.init(position, hashMove, ordering, 1);
+		int[] picked = new int[MoveGenerator.MAX_MOVES];
+		int pickedCount = 0;
+		for (int move; (move = picker.next()) != Move.NONE; )
+			picked[pickedCount++] = move;
+
+		assertEquals(count, pickedCount);
+		int[] expected = Arrays.copyOf(legal, count);
+		int[] actual = Arrays.copyOf(picked, pickedCount);
+		Arrays.sort(expected);
+		Arrays.sort(actual);
+		assertTrue(Arrays.equals(expected, actual));
+		assertEquals(hashMove, picked[0]);
+	}
+}
@@ -0,0 +1,72 @@
+package chess.src.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.src.board.ChessBoard;
+import chess.src.board.InvalidLocationException;
+import chess.src.board.Move;
+import chess.src.board.Position;
+import chess.src.board.TestMoves;
+
+class OpeningBookTest {
+
+	private static OpeningBook book;
+
+	@BeforeAll
+	static void buildBundledBook(@TempDir Path directory) throws IOException {
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		try (InputStream lines = OpeningBook.class.getResourceAsStream("/book/openings.txt")) {
+			builder.addLines(lines);
+		}
+		Path file = directory.resolve("book.bin");
+		builder.write(file);
+		book = OpeningBook.open(file);
+	}
+
+	@Test
+	void startPositionHasAMainOpeningMove() {
+		Position position = new ChessBoard().getPosition();
+		for (int i = 0; i < 20; i++) {
+			int move = book.probe(position);
+			assertTrue(List.of("e2e4", "d2d4", "c2c4", "g1f3").contains(Move.toString(move)), Move.toString(move));
+		}
+	}
+
+	@Test
+	void castlingComesBackAsTheKingMove() throws InvalidLocationException {
+		Position position = TestMoves.afterMoves("e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4", "g8f6");
+		int move = book.probe(position);
+		assertEquals("e1g1", Move.toString(move));
+		assertEquals(Move.CASTLING, Move.flags(move));
+	}
+
+	@Test
+	void positionOutOfTheBookHasNoMove() throws InvalidLocationException {
+		assertEquals(Move.NONE, book.probe(TestMoves.afterMoves("a2a3", "h7h6", "h2h3")));
+	}
+
+	@Test
+	void illegalLineIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> new OpeningBookBuilder().addLine("e2e4 e5e4"));
+	}
+
+	@Test
+	void bookThatCannotBeLoadedIsNull(@TempDir Path directory) {
+		assertNull(OpeningBook.load(directory.resolve("missing.bin").toString(), "/book/openings.txt"));
+		assertNull(OpeningBook.load(null, "/book/missing.txt"));
+		assertNotNull(OpeningBook.load(null, "/book/openings.txt"));
+	}
+}
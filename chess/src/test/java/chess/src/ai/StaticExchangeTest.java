@@ -0,0 +1,26 @@
+package chess.src.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import chess.src.board.ChessBoard;
+import chess.src.board.Position;
+
+class StaticExchangeTest {
+
+	@Test
+	void undefendedPawnIsWon() {
+		Position position = new ChessBoard("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1").getPosition();
+		assertEquals(100, new StaticExchange().evaluate(position, position.createMove(4, 36))); // Rxe5
+	}
+
+	@Test
+	void xRayAttackersJoinTheExchange() {
+		// Nxe5 loses the knight for a pawn: the rook and queen behind each other on the e-file,
+		// and the queen behind the bishop on the long diagonal, all take part
+		Position position = new ChessBoard("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1")
+				.getPosition();
+		assertEquals(-200, new StaticExchange().evaluate(position, position.createMove(19, 36))); // Nxe5
+	}
+}
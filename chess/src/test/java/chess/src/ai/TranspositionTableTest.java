@@ -0,0 +1,57 @@
+package chess.src.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import chess.src.board.ChessBoard;
+import chess.src.board.Position;
+
+class TranspositionTableTest {
+
+	@Test
+	void storedEntryIsFoundAgain() {
+		TranspositionTable table = new TranspositionTable(1);
+		Position position = new ChessBoard().getPosition();
+		int move = position.createMove(12, 28); // e2e4
+		table.store(position.hash(), move, 7, TranspositionTable.LOWER, -99_950);
+
+		long entry = table.probe(position.hash());
+		assertEquals(move, TranspositionTable.move(entry));
+		assertEquals(7, TranspositionTable.depth(entry));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+		assertEquals(-99_950, TranspositionTable.score(entry));
+		assertEquals(0, table.probe(position.hash() ^ 1));
+	}
+
+	@Test
+	void deeperEntryOfTheCurrentSearchIsKept() {
+		TranspositionTable table = new TranspositionTable(1);
+		long buckets = (1 << 20) / 32;
+		// four keys of the same bucket
+		long a = 5, b = 5 + buckets, c = 5 + 2 * buckets, d = 5 + 3 * buckets;
+		table.store(a, 0, 9, TranspositionTable.EXACT, 1);
+		table.store(b, 0, 2, TranspositionTable.EXACT, 2);
+		table.store(c, 0, 3, TranspositionTable.EXACT, 3); // replaces the shallower b
+		assertEquals(9, TranspositionTable.depth(table.probe(a)));
+		assertEquals(0, table.probe(b));
+
+		table.newSearch();
+		table.store(d, 0, 1, TranspositionTable.EXACT, 4); // an old entry goes first, the shallower c
+		assertEquals(9, TranspositionTable.depth(table.probe(a)));
+		assertEquals(0, table.probe(c));
+		assertEquals(4, TranspositionTable.score(table.probe(d)));
+	}
+
+	@Test
+	void sizeIsRoundedDownAndCappedAtOneGigabyte() {
+		assertEquals((1 << 20) / 32, TranspositionTable.bucketCount(1));
+		assertEquals((2 << 20) / 32, TranspositionTable.bucketCount(3));
+		assertEquals((1 << 30) / 32, TranspositionTable.bucketCount(1024));
+		assertEquals((1 << 30) / 32, TranspositionTable.bucketCount(2048));
+		assertEquals((1 << 30) / 32, TranspositionTable.bucketCount(Integer.MAX_VALUE));
+		assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+		assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(-1));
+	}
+}
@@ -0,0 +1,80 @@
+package chess.src.board;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class PerftTest {
+
+	// pins, checks and discovered checks along the fourth row
+	private static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+	// promotions and underpromotions with and without capture
+	private static final String PROMOTIONS = "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1";
+	// "Kiwipete": castling on both sides, en passant, pins and promotions
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+	// castling rights with the king in check and promotions with capture
+	private static final String CASTLING = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+
+	private static long perft(Perft perft, String fen, int depth) {
+		return perft.perft(new ChessBoard(fen).getPosition(), depth);
+	}
+
+	@Test
+	void startPosition() {
+		Perft perft = new Perft();
+		assertEquals(20, perft(perft, ChessBoard.START_FEN, 1));
+		assertEquals(400, perft(perft, ChessBoard.START_FEN, 2));
+		assertEquals(8902, perft(perft, ChessBoard.START_FEN, 3));
+		assertEquals(197281, perft(perft, ChessBoard.START_FEN, 4));
+		assertEquals(4865609, perft(perft, ChessBoard.START_FEN, 5));
+	}
+
+	@Test
+	void endgame() {
+		Perft perft = new Perft();
+		assertEquals(14, perft(perft, ENDGAME, 1));
+		assertEquals(191, perft(perft, ENDGAME, 2));
+		assertEquals(2812, perft(perft, ENDGAME, 3));
+		assertEquals(43238, perft(perft, ENDGAME, 4));
+	}
+
+	@Test
+	void promotions() {
+		Perft perft = new Perft();
+		assertEquals(24, perft(perft, PROMOTIONS, 1));
+		assertEquals(496, perft(perft, PROMOTIONS, 2));
+		assertEquals(9483, perft(perft, PROMOTIONS, 3));
+		assertEquals(182838, perft(perft, PROMOTIONS, 4));
+	}
+
+	@Test
+	void kiwipete() {
+		Perft perft = new Perft();
+		assertEquals(48, perft(perft, KIWIPETE, 1));
+		assertEquals(2039, perft(perft, KIWIPETE, 2));
+		assertEquals(97862, perft(perft, KIWIPETE, 3));
+	}
+
+	@Test
+	void castling() {
+		Perft perft = new Perft();
+		assertEquals(6, perft(perft, CASTLING, 1));
+		assertEquals(264, perft(perft, CASTLING, 2));
+		assertEquals(9467, perft(perft, CASTLING, 3));
+	}
+
+	@Test
+	void parallelAndHashedModesAgree() {
+		assertEquals(197281, perft(new Perft(true, 0), ChessBoard.START_FEN, 4));
+		assertEquals(197281, perft(new Perft(false, 4), ChessBoard.START_FEN, 4));
+		assertEquals(182838, perft(new Perft(true, 4), PROMOTIONS, 4));
+	}
+
+	@Test
+	void divideSumsToPerft() {
+		long sum = 0;
+		for (long count : new Perft().divide(new ChessBoard(ChessBoard.START_FEN).getPosition(), 3).values())
+			sum += count;
+		assertEquals(8902, sum);
+	}
+}
@@ -0,0 +1,49 @@
+package chess.src.board;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class PositionCodecTest {
+
+	private static final String[] FENS = {
+			ChessBoard.START_FEN,
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 12 40",
+			"n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1" };
+
+	@Test
+	void fenRoundTrip() {
+		for (String fen : FENS)
+			assertEquals(fen, new ChessBoard(fen).toFen());
+	}
+
+	@Test
+	void binaryRoundTrip() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(FENS.length * PositionCodec.ENCODED_SIZE);
+		for (String fen : FENS)
+			PositionCodec.encode(new ChessBoard(fen).getPosition(), buffer);
+		assertEquals(buffer.capacity(), buffer.position());
+
+		buffer.flip();
+		for (String fen : FENS) {
+			Position decoded = PositionCodec.decode(buffer);
+			assertEquals(fen, Fen.write(decoded));
+			assertEquals(new ChessBoard(fen).hash(), decoded.hash());
+		}
+	}
+
+	@Test
+	void enPassantSquareFollowsDoublePush() throws InvalidLocationException {
+		Position position = new ChessBoard("rnbqkbnr/ppp1pppp/8/4P3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2").getPosition();
+		position.makeMove(position.createMove(ChessBoard.parseSquare("f7"), ChessBoard.parseSquare("f5")));
+		assertEquals("rnbqkbnr/ppp1p1pp/8/4Pp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", Fen.write(position));
+		position.unmakeMove();
+		position.makeMove(position.createMove(ChessBoard.parseSquare("a7"), ChessBoard.parseSquare("a5")));
+		// no white pawn can take on a6
+		assertEquals("rnbqkbnr/1pp1pppp/8/p3P3/8/8/PPPP1PPP/RNBQKBNR w KQkq - 0 3", Fen.write(position));
+	}
+}
@@ -0,0 +1,54 @@
+package chess.src.board;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RulesTest {
+
+	@Test
+	void threefoldRepetition() throws InvalidLocationException {
+		Position position = new ChessBoard().getPosition();
+		TestMoves.play(position, "g1f3", "g8f6", "f3g1", "f6g8");
+		assertTrue(position.isRepetition());
+		assertFalse(position.isThreefoldRepetition());
+		TestMoves.play(position, "g1f3", "g8f6", "f3g1", "f6g8");
+		assertTrue(position.isThreefoldRepetition());
+		// a pawn move can never be taken back, the earlier positions cannot occur again
+		TestMoves.play(position, "e2e4");
+		assertFalse(position.isRepetition());
+	}
+
+	@Test
+	void fiftyMoveRule() throws InvalidLocationException {
+		Position position = new ChessBoard("8/8/4k3/8/8/3K4/8/7R w - - 99 80").getPosition();
+		assertFalse(position.isFiftyMoveDraw());
+		TestMoves.play(position, "h1h2");
+		assertTrue(position.isFiftyMoveDraw());
+	}
+
+	@Test
+	void castlingMovesTheRook() throws InvalidLocationException {
+		ChessBoard board = new ChessBoard("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+		Position position = board.getPosition();
+		TestMoves.play(position, "e1g1", "e8c8");
+		assertEquals("2kr3r/8/8/8/8/8/8/R4RK1 w - - 2 2", board.toFen());
+		position.unmakeMove();
+		position.unmakeMove();
+		assertEquals("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", board.toFen());
+	}
+
+	@Test
+	void enPassantMayNotExposeTheKing() throws InvalidLocationException {
+		// both pawns leave the fifth row, the rook on h5 would see the king
+		Position position = new ChessBoard("8/8/8/K2pP2r/8/8/8/4k3 w - d6 0 1").getPosition();
+		assertFalse(position.isMoveLegal(ChessBoard.parseSquare("e5"), ChessBoard.parseSquare("d6")));
+
+		position = new ChessBoard("8/8/8/3pP3/8/8/8/K3k3 w - d6 0 1").getPosition();
+		assertTrue(position.isMoveLegal(ChessBoard.parseSquare("e5"), ChessBoard.parseSquare("d6")));
+		TestMoves.play(position, "e5d6");
+		assertEquals("8/8/3P4/8/8/8/8/K3k3 b - - 0 1", Fen.write(position));
+	}
+}
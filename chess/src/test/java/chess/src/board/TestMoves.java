@@ -0,0 +1,22 @@
+package chess.src.board;
+
+// Helpers shared by the tests that set up a position by playing moves on it.
+public class TestMoves {
+
+	private TestMoves() {
+	}
+
+	// plays the moves, given in coordinate notation ("e2e4"), on the position
+	public static void play(Position position, String... moves) throws InvalidLocationException {
+		for (String move : moves)
+			position.makeMove(position.createMove(ChessBoard.parseSquare(move.substring(0, 2)),
+					ChessBoard.parseSquare(move.substring(2, 4))));
+	}
+
+	// the start position after the moves
+	public static Position afterMoves(String... moves) throws InvalidLocationException {
+		Position position = new ChessBoard().getPosition();
+		play(position, moves);
+		return position;
+	}
+}
@@ -0,0 +1,43 @@
+package chess.src.board;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ZobristTest {
+
+	@Test
+	void transpositionsHaveEqualHashes() throws InvalidLocationException {
+		Position first = new ChessBoard(ChessBoard.START_FEN).getPosition();
+		Position second = new ChessBoard(ChessBoard.START_FEN).getPosition();
+		TestMoves.play(first, "g1f3", "g8f6", "b1c3");
+		TestMoves.play(second, "b1c3", "g8f6", "g1f3");
+		assertEquals(first.hash(), second.hash());
+		assertEquals(Zobrist.compute(first), first.hash());
+
+		// same placement, other side to move
+		second.nextPlayer();
+		assertNotEquals(first.hash(), second.hash());
+	}
+
+	@Test
+	void unmakeRestoresHash() throws InvalidLocationException {
+		Position position = new ChessBoard(ChessBoard.START_FEN).getPosition();
+		long start = position.hash();
+		TestMoves.play(position, "e2e4", "d7d5", "e4d5", "d8d5");
+		for (int i = 0; i < 4; i++)
+			position.unmakeMove();
+		assertEquals(start, position.hash());
+	}
+
+	@Test
+	void boardMovesUpdateHash() throws InvalidLocationException {
+		ChessBoard board = new ChessBoard(ChessBoard.START_FEN);
+		for (String[] move : new String[][] { { "e2", "e4" }, { "e7", "e5" } }) {
+			Square from = board.getSquareAt(move[0]);
+			from.getPiece().move(from, move[1]);
+		}
+		assertEquals(Zobrist.compute(board.getPosition()), board.hash());
+	}
+}